@@ -0,0 +1,62 @@
+import java.util.function.IntConsumer;
+
+// Hits et FreePage d'un BufferPool pas encore vus par sa politique de remplacement, pour les
+// politiques qui ne les acceptent que sous le verrou de politique du pool
+// (ReplacementPolicy.concurrentAccesses). Un thread les note dans l'un des STRIPES petits
+// tampons, choisi par son id, sous le verrou de ce tampon : deux hits de threads différents
+// s'attendent rarement. Aucun accès n'est perdu : le thread qui trouve son tampon plein prend
+// le verrou de politique, rejoue le tampon puis son propre accès ; le pool rejoue tous les
+// tampons (drain) avant chaque appel à la politique.
+// Ordre des verrous : verrou de politique, puis verrou d'un tampon.
+final class AccessLog {
+    private static final int STRIPES = 16;
+    private static final int SLOTS = 64;
+
+    private final Object policyLock;
+    private final IntConsumer replay;     // appelé sous policyLock pour chaque accès, dans l'ordre
+    private final int[][] buffers = new int[STRIPES][SLOTS];
+    private final int[] counts = new int[STRIPES];
+    private final Object[] locks = new Object[STRIPES];
+
+    AccessLog(Object policyLock, IntConsumer replay) {
+        this.policyLock = policyLock;
+        this.replay = replay;
+        for (int s = 0; s < STRIPES; s++) locks[s] = new Object();
+    }
+
+    // access = case << 1, | 1 pour un FreePage
+    void record(int access) {
+        int s = (int) Thread.currentThread().getId() & (STRIPES - 1);
+        synchronized (locks[s]) {
+            if (counts[s] < SLOTS) {
+                buffers[s][counts[s]++] = access;
+                return;
+            }
+        }
+        synchronized (policyLock) {
+            drain(s);
+            replay.accept(access);
+        }
+    }
+
+    // Sous policyLock : rejoue tous les accès notés, chaque tampon dans l'ordre où il a été rempli.
+    void drain() {
+        for (int s = 0; s < STRIPES; s++) drain(s);
+    }
+
+    // Sous policyLock : oublie les accès notés (la politique a été remise à zéro).
+    void clear() {
+        for (int s = 0; s < STRIPES; s++) {
+            synchronized (locks[s]) {
+                counts[s] = 0;
+            }
+        }
+    }
+
+    private void drain(int s) {
+        synchronized (locks[s]) {
+            for (int k = 0; k < counts[s]; k++) replay.accept(buffers[s][k]);
+            counts[s] = 0;
+        }
+    }
+}
@@ -0,0 +1,129 @@
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.function.IntPredicate;
+
+// ARC (Megiddo & Modha): T1 holds pages seen once recently, T2 pages seen at least
+// twice; B1/B2 remember the pages evicted from T1/T2. A miss on a page remembered in
+// B1 grows the target size p of T1, a miss on one in B2 shrinks it, so the split
+// between recency and frequency adapts to the workload. Unpins are not accesses.
+public class ArcPolicy implements ReplacementPolicy {
+    private int capacity;       // c: frames in use
+    private final FrameList t1;
+    private final FrameList t2;
+    private final LinkedHashSet<Long> b1 = new LinkedHashSet<>();
+    private final LinkedHashSet<Long> b2 = new LinkedHashSet<>();
+    private int p;              // target size of T1
+    private long adaptedFor = Long.MIN_VALUE; // p already adapted for this incoming page
+
+    public ArcPolicy(int frames) {
+        capacity = frames;
+        t1 = new FrameList(frames);
+        t2 = new FrameList(frames);
+    }
+
+    @Override
+    public void onLoad(int frame, PageId pid) {
+        long key = PageTable.key(pid);
+        if (b1.contains(key) || b2.contains(key)) {
+            if (adaptedFor != key) adapt(key);
+            b1.remove(key);
+            b2.remove(key);
+            t2.addLast(frame);
+        } else {
+            t1.addLast(frame);
+        }
+        adaptedFor = Long.MIN_VALUE;
+        trimGhosts();
+    }
+
+    @Override
+    public void onHit(int frame) {
+        t1.remove(frame);
+        t2.addLast(frame);
+    }
+
+    @Override
+    public void onUnpin(int frame) {
+    }
+
+    @Override
+    public void onEvict(int frame, PageId pid) {
+        if (t1.contains(frame)) {
+            t1.remove(frame);
+            b1.add(PageTable.key(pid));
+        } else if (t2.contains(frame)) {
+            t2.remove(frame);
+            b2.add(PageTable.key(pid));
+        }
+        // ghosts are trimmed by the next onLoad, once the incoming page left B1/B2
+    }
+
+    @Override
+    public int selectVictim(PageId incoming, IntPredicate evictable) {
+        long key = PageTable.key(incoming);
+        if (b1.contains(key) || b2.contains(key)) {
+            adapt(key);
+            adaptedFor = key;
+        }
+        // REPLACE: take from T1 when it is above its target p
+        boolean fromT1 = t1.size() > 0 && (t1.size() > p || (b2.contains(key) && t1.size() == p));
+        int victim = oldestEvictable(fromT1 ? t1 : t2, evictable);
+        if (victim < 0) victim = oldestEvictable(fromT1 ? t2 : t1, evictable);
+        return victim;
+    }
+
+    // REPLACE order for an incoming page that is not in B1/B2
+    @Override
+    public int coldFrames(int[] out, IntPredicate candidate) {
+        boolean fromT1 = t1.size() > 0 && t1.size() > p;
+        int n = (fromT1 ? t1 : t2).collect(out, 0, candidate);
+        return (fromT1 ? t2 : t1).collect(out, n, candidate);
+    }
+
+    @Override
+    public void reset() {
+        t1.clear();
+        t2.clear();
+        b1.clear();
+        b2.clear();
+        p = 0;
+        adaptedFor = Long.MIN_VALUE;
+    }
+
+    @Override
+    public void onResize(int frames) {
+        capacity = frames;
+        p = Math.min(p, capacity);
+        trimGhosts();
+    }
+
+    private void adapt(long key) {
+        if (b1.contains(key)) {
+            p = Math.min(capacity, p + Math.max(b2.size() / Math.max(1, b1.size()), 1));
+        } else {
+            p = Math.max(0, p - Math.max(b1.size() / Math.max(1, b2.size()), 1));
+        }
+    }
+
+    // |T1| + |B1| <= c and |T1| + |T2| + |B1| + |B2| <= 2c (right after a shrink, the
+    // resident pages alone may still exceed 2c)
+    private void trimGhosts() {
+        while (t1.size() + b1.size() > capacity && !b1.isEmpty()) removeOldest(b1);
+        while (t1.size() + t2.size() + b1.size() + b2.size() > 2 * capacity && !(b1.isEmpty() && b2.isEmpty())) {
+            removeOldest(b2.isEmpty() ? b1 : b2);
+        }
+    }
+
+    private static void removeOldest(LinkedHashSet<Long> ghosts) {
+        Iterator<Long> it = ghosts.iterator();
+        it.next();
+        it.remove();
+    }
+
+    private static int oldestEvictable(FrameList list, IntPredicate evictable) {
+        for (int f = list.first(); f >= 0; f = list.next(f)) {
+            if (evictable.test(f)) return f;
+        }
+        return -1;
+    }
+}
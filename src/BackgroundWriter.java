@@ -0,0 +1,155 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.BitSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Écrivain de fond d'un BufferPool (désactivé par défaut) : nettoie les cases froides avant
+// leur éviction (bm_bgwriter_interval_ms) et fait des checkpoints incrémentaux
+// (bm_checkpoint_interval_ms), pour que les défauts de page et l'arrêt aient peu de pages
+// sales à écrire. Un tour d'écrivain ou un FlushBuffers à la fois : verrou `this`.
+final class BackgroundWriter {
+    private static final int STAGING_ALIGN = 4096; // copies alignées pour dm_direct_io
+
+    private final BufferPool pool;
+    private final DBConfig config;
+    private final DiskManager diskManager;
+
+    private ScheduledExecutorService executor;
+    private final BitSet checkpointPending = new BitSet(); // cases restant à écrire pour le checkpoint en cours
+    private boolean checkpointRunning;
+    private ByteBuffer staging;                   // copies des pages d'un tour
+    private long nextCheckpoint;                  // System.nanoTime() du prochain checkpoint
+
+    BackgroundWriter(BufferPool pool, DBConfig config, DiskManager diskManager) {
+        this.pool = pool;
+        this.config = config;
+        this.diskManager = diskManager;
+    }
+
+    // Un tour : écrit les pages sales parmi les bm_bgwriter_clean_frames cases que la politique
+    // évincerait en premier, puis avance le checkpoint en cours, au plus bm_bgwriter_max_pages
+    // pages en tout. Rend le nombre de pages écrites.
+    synchronized int run() throws IOException {
+        int budget = Math.max(1, config.getBm_bgwriter_max_pages());
+        int written = 0;
+        if (config.getBm_bgwriter_interval_ms() > 0) written += cleanColdFrames(budget);
+        if (config.getBm_checkpoint_interval_ms() > 0) written += checkpointStep(budget - written);
+        return written;
+    }
+
+    void start(String poolName) {
+        int cleanMs = config.getBm_bgwriter_interval_ms();
+        int checkpointMs = config.getBm_checkpoint_interval_ms();
+        if (cleanMs <= 0 && checkpointMs <= 0) return;
+        // un checkpoint avance de bm_bgwriter_max_pages pages par tour : les tours restent fréquents
+        long period = (cleanMs > 0) ? cleanMs : Math.min(checkpointMs, 100);
+        if (checkpointMs > 0) {
+            nextCheckpoint = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(checkpointMs);
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "bm-writer-" + poolName);
+            t.setDaemon(true);
+            return t;
+        });
+        executor.scheduleWithFixedDelay(() -> {
+            try {
+                run();
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Background writer failed: " + e.getMessage());
+            }
+        }, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    // le tour en cours se termine, sans interrompre ses écritures
+    void stop() {
+        if (executor == null) return;
+        executor.shutdown();
+        try {
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        executor = null;
+    }
+
+    // Sous le verrou `this` : le pool a été vidé, le checkpoint en cours n'a plus rien à écrire.
+    void reset() {
+        checkpointPending.clear();
+        checkpointRunning = false;
+    }
+
+    // Les cases vides comptent comme propres : seules les manquantes sont cherchées.
+    private int cleanColdFrames(int budget) throws IOException {
+        int target = config.getBm_bgwriter_clean_frames();
+        if (target <= 0) target = Math.max(1, pool.getBufferCount() / 4);
+        target -= pool.getFreeCount();
+        if (target <= 0) return 0;
+        int[] cold = new int[target];
+        int n = pool.coldFrames(cold);
+        return writeFrames(cold, n, budget, false);
+    }
+
+    // Checkpoint incrémental : les cases sales au début du checkpoint sont écrites au fil des
+    // tours ; quand il n'en reste plus, DiskManager.Checkpoint() écrit les bitmaps et force
+    // les fichiers. Les pages modifiées entre-temps attendent le checkpoint suivant.
+    private int checkpointStep(int budget) throws IOException {
+        if (!checkpointRunning) {
+            if (System.nanoTime() - nextCheckpoint < 0) return 0;
+            for (int i = 0; i < pool.getCapacity(); i++) {
+                if (pool.isDirty(i)) checkpointPending.set(i);
+            }
+            checkpointRunning = true;
+        }
+        int[] batch = new int[Math.max(0, budget)];
+        int n = 0;
+        for (int i = checkpointPending.nextSetBit(0); i >= 0 && n < batch.length; i = checkpointPending.nextSetBit(i + 1)) {
+            checkpointPending.clear(i);
+            batch[n++] = i;
+        }
+        int written = writeFrames(batch, n, budget, true);
+        if (checkpointPending.isEmpty()) {
+            diskManager.Checkpoint();
+            checkpointRunning = false;
+            nextCheckpoint = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(config.getBm_checkpoint_interval_ms());
+        }
+        return written;
+    }
+
+    // Écrit au plus max cases sales parmi candidates[0..n) en un seul lot trié
+    // (DiskManager.WritePageBatch). Chaque page est copiée dans `staging` sous le verrou de
+    // sa case, qui n'est donc jamais tenu pendant l'écriture ; la case reste épinglée jusqu'à
+    // la fin de l'écriture pour ne pas être évincée avant. Une page épinglée par un autre
+    // thread n'est écrite que si evenPinned. Rend le nombre de pages écrites. Sous le verrou `this`.
+    int writeFrames(int[] candidates, int n, int max, boolean evenPinned) throws IOException {
+        int pageSize = config.getPagesize();
+        if (staging == null || staging.capacity() < max * pageSize) {
+            staging = ByteBuffer.allocateDirect(max * pageSize + STAGING_ALIGN).alignedSlice(STAGING_ALIGN);
+        }
+        int[] batch = new int[max];
+        PageId[] pids = new PageId[max];
+        ByteBuffer[] copies = new ByteBuffer[max];
+        int m = 0;
+        for (int k = 0; k < n && m < max; k++) {
+            int i = candidates[k];
+            PageId pid = pool.pinForWrite(i, evenPinned);
+            if (pid == null) continue;
+            ByteBuffer copy = staging.slice(m * pageSize, pageSize);
+            pool.copyForWrite(i, copy);
+            batch[m] = i;
+            pids[m] = pid;
+            copies[m++] = copy;
+        }
+        try {
+            diskManager.WritePageBatch(pids, copies, m);
+        } catch (IOException | RuntimeException e) {
+            for (int k = 0; k < m; k++) pool.redirty(batch[k]);
+            throw e;
+        } finally {
+            for (int k = 0; k < m; k++) pool.unpinAfterWrite(batch[k]);
+        }
+        pool.getStats().backgroundWrites.add(m);
+        return m;
+    }
+}
@@ -1,165 +1,351 @@
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
 
+/**
+ * Gestionnaire des buffer pools (le fonctionnement d'un pool est décrit dans BufferPool).
+ *
+ * - Le pool "default" (bm_buffercount, bm_policy) reçoit toutes les pages, sauf celles des
+ *   cibles affectées à un autre pool. Les autres pools ont chacun leur taille et leur
+ *   politique (bm_pools, BMPOOL CREATE) ; une cible (bm_pool_assign, BMPOOL ASSIGN) est
+ *   une relation, HEADERS (pages d'en-tête de toutes les relations, lues à chaque
+ *   InsertRecord) ou CATALOG (pages lues hors d'une relation).
+ * - Une page n'est présente que dans un pool à la fois : tant qu'elle y est, elle y est
+ *   lue, quel que soit le pool de sa cible. Une affectation ne vaut donc que pour les
+ *   défauts de page suivants.
+ * - Les méthodes sans nom de pool portent sur le pool "default".
+ */
 public class BufferManager {
 
+    public static final String DEFAULT_POOL = "default";
+    public static final String HEADERS = "HEADERS";
+    public static final String CATALOG = "CATALOG";
+
     private final DBConfig config;
     private final DiskManager diskManager;
 
-    // --- Données du buffer pool ---
-    private final PageId[] pageIds;       // quelle page est chargée dans chaque buffer
-    private final byte[][] data;          // contenu binaire de chaque page
-    private final int[] pinCount;         // nb de "verrous" sur la page
-    private final boolean[] dirty;        // indique si la page a été modifiée
-    private final long[] lastAccessTime;  // pour LRU/MRU
+    private final Map<String, BufferPool> pools = new LinkedHashMap<>(); // ordre de création (verrou : pools)
+    private final BufferPool defaultPool;
+    private final ConcurrentHashMap<String, BufferPool> assignments = new ConcurrentHashMap<>(); // cible -> pool
 
-    private String currentPolicy;         // "LRU" ou "MRU"
+    // communs à tous les pools : pool de chaque page présente, écritures d'éviction en cours
+    private final ConcurrentHashMap<PageId, BufferPool> directory = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<PageId, CompletableFuture<Void>> writeBacks = new ConcurrentHashMap<>();
 
     public BufferManager(DBConfig config, DiskManager diskManager) {
         this.config = config;
         this.diskManager = diskManager;
-        this.currentPolicy = config.getBm_policy();
 
         int n = config.getBm_buffercount();
-        int pageSize = config.getPagesize();
+        int capacity = (config.getBm_max_buffercount() > 0) ? Math.max(n, config.getBm_max_buffercount()) : 4 * n;
+        defaultPool = new BufferPool(DEFAULT_POOL, n, capacity, config.getBm_policy(), config, diskManager,
+                directory, writeBacks);
+        pools.put(DEFAULT_POOL, defaultPool);
 
-        pageIds = new PageId[n];
-        data = new byte[n][pageSize];
-        pinCount = new int[n];
-        dirty = new boolean[n];
-        lastAccessTime = new long[n];
+        for (String spec : splitList(config.getBm_pools())) {
+            String[] f = spec.split(":");
+            if (f.length < 2 || f.length > 4)
+                throw new IllegalArgumentException("bm_pools : pool invalide \"" + spec + "\" (nom:cases[:politique[:max]])");
+            String policy = (f.length >= 3 && !f[2].isBlank()) ? f[2].trim() : config.getBm_policy();
+            int max = (f.length == 4) ? Integer.parseInt(f[3].trim()) : 0;
+            CreatePool(f[0].trim(), Integer.parseInt(f[1].trim()), max, policy);
+        }
+        for (String spec : splitList(config.getBm_pool_assign())) {
+            String[] f = spec.split("=");
+            if (f.length != 2)
+                throw new IllegalArgumentException("bm_pool_assign : affectation invalide \"" + spec + "\" (cible=pool)");
+            AssignPool(f[0].trim(), f[1].trim());
+        }
     }
 
     // ---------------------------------------------------
     // GET PAGE
     // ---------------------------------------------------
-    public byte[] GetPage(PageId pageId) throws IOException{
-        // 1️⃣ Vérifier si la page est déjà chargée
-        int index = findPageIndex(pageId);
-        if (index != -1) {
-            pinCount[index]++;
-            lastAccessTime[index] = System.currentTimeMillis();
-            return data[index];
-        }
+    // La page est rendue sous forme de la vue de sa case (position 0, capacité pagesize),
+    // valable jusqu'au FreePage correspondant (voir aussi PinPage). La vue est partagée par
+    // tous ceux qui épinglent la page : accès absolus seulement (getInt(offset), put(offset, ...)),
+    // sans changer sa position ni sa limite.
+    public ByteBuffer GetPage(PageId pageId) throws IOException{
+        return GetPage(pageId, null, null, false);
+    }
 
-        // 2️⃣ Trouver une case libre
-        index = findFreeIndex();
-        if (index == -1) {
-            // 3️⃣ Si pas libre, appliquer politique de remplacement
-            index = selectVictimIndex();
-            if (index == -1) {
-                throw new RuntimeException("Aucune frame disponible (toutes les pages sont pinnées)");
-            }
-
-            // Si la case est dirty => écrire sur disque
-            if (dirty[index]) {
-                diskManager.WritePage(pageIds[index], data[index]);
-            }
+    // Idem ; en cas de défaut, la page est lue dans une case de l'anneau `ring` (null : pool partagé).
+    public ByteBuffer GetPage(PageId pageId, BufferRing ring) throws IOException{
+        return GetPage(pageId, ring, null, false);
+    }
+
+    // Idem, pour le compte de la relation `owner` : un défaut de page la lit dans le pool de la relation.
+    public ByteBuffer GetPage(PageId pageId, BufferRing ring, String owner) throws IOException{
+        return GetPage(pageId, ring, owner, false);
+    }
+
+    // Idem ; header : page d'en-tête de la relation (pool de HEADERS, s'il y en a un).
+    public ByteBuffer GetPage(PageId pageId, BufferRing ring, String owner, boolean header) throws IOException{
+        while (true) {
+            BufferPool pool = directory.get(pageId);
+            if (pool == null) pool = route(owner, header);
+            // null : la page a été chargée entre-temps dans un autre pool
+            ByteBuffer page = pool.GetPage(pageId, ring, owner);
+            if (page != null) return page;
         }
+    }
 
-        // Charger la page depuis le disque
-        diskManager.ReadPage(pageId, data[index]);
-        pageIds[index] = pageId;
-        pinCount[index] = 1;
-        dirty[index] = false;
-        lastAccessTime[index] = System.currentTimeMillis();
+    // Comme GetPage, mais la page est rendue sous forme d'un PageHandle à fermer (try-with-resources)
+    // au lieu d'un FreePage : le dépinglage ne recherche plus la page.
+    public PageHandle PinPage(PageId pageId) throws IOException{
+        return PinPage(pageId, null, null, false);
+    }
 
-        return data[index];
+    public PageHandle PinPage(PageId pageId, BufferRing ring, String owner, boolean header) throws IOException{
+        while (true) {
+            BufferPool pool = directory.get(pageId);
+            if (pool == null) pool = route(owner, header);
+            PageHandle page = pool.PinPage(pageId, ring, owner);
+            if (page != null) return page;
+        }
+    }
+
+    // Comme PinPage, pour une page que l'appelant va réécrire entièrement : si elle n'est pas
+    // dans un pool, elle n'est pas lue sur disque (sa case est remise à zéro).
+    public PageHandle PinNewPage(PageId pageId, String owner, boolean header) throws IOException{
+        while (true) {
+            BufferPool pool = directory.get(pageId);
+            if (pool == null) pool = route(owner, header);
+            PageHandle page = pool.PinNewPage(pageId, owner);
+            if (page != null) return page;
+        }
     }
 
     // ---------------------------------------------------
     // FREE PAGE
     // ---------------------------------------------------
     public void FreePage(PageId pageId, boolean valdirty) {
-        int index = findPageIndex(pageId);
-        if (index == -1)
-            throw new RuntimeException("Page non trouvée dans le buffer pool : " + pageId);
+        poolOf(pageId).FreePage(pageId, valdirty);
+    }
+
+    // Verrou de la case qui contient une page épinglée : en lecture pour lire la page,
+    // en écriture pour la modifier, quand plusieurs threads partagent la page.
+    public ReadWriteLock getLatch(PageId pageId) {
+        return poolOf(pageId).getLatch(pageId);
+    }
+
+    // ---------------------------------------------------
+    // LECTURE ANTICIPÉE, ANNEAUX
+    // ---------------------------------------------------
+    // Indique que ces pages vont être lues (voir BufferPool.Prefetch) : celles qui ne sont
+    // présentes dans aucun pool sont lues d'avance dans le pool "default".
+    public void Prefetch(PageId... pages) {
+        Prefetch(null, null, pages);
+    }
+
+    // Idem, dans les cases de l'anneau `ring` (null : pool partagé).
+    public void Prefetch(BufferRing ring, PageId... pages) {
+        Prefetch(null, ring, pages);
+    }
 
-        if (pinCount[index] > 0)
-            pinCount[index]--;
+    // Idem, pour la relation `owner` : dans le pool de l'anneau, sinon dans celui de la relation.
+    public void Prefetch(String owner, BufferRing ring, PageId... pages) {
+        BufferPool pool = (ring != null) ? ring.pool : route(owner, false);
+        pool.Prefetch(ring, pages);
+    }
 
-        if (valdirty)
-            dirty[index] = true;
+    public int getReadAhead() {
+        return defaultPool.getReadAhead();
+    }
 
-        lastAccessTime[index] = System.currentTimeMillis();
+    public BufferRing NewBufferRing() {
+        return defaultPool.NewBufferRing();
+    }
+
+    // Anneau pris dans le pool de la relation (voir BufferPool.NewBufferRing).
+    public BufferRing NewBufferRing(String owner) {
+        return route(owner, false).NewBufferRing();
     }
 
     // ---------------------------------------------------
     // FLUSH BUFFERS
     // ---------------------------------------------------
+    // Écrit les pages modifiées puis vide tous les pools ; les autres threads ne doivent
+    // plus avoir de page épinglée.
     public void FlushBuffers() throws IOException{
-        int n = config.getBm_buffercount();
-        for (int i = 0; i < n; i++) {
-            if (pageIds[i] != null && dirty[i]) {
-                diskManager.WritePage(pageIds[i], data[i]);
-            }
-
-            // Réinitialisation
-            pageIds[i] = null;
-            dirty[i] = false;
-            pinCount[i] = 0;
-            lastAccessTime[i] = 0;
-            data[i] = new byte[config.getPagesize()];
+        for (BufferPool pool : getPools()) pool.FlushBuffers();
+    }
+
+    // Écrit celles de ces pages qui sont modifiées, sans les retirer des pools.
+    public void FlushPages(Collection<PageId> pages) throws IOException{
+        for (BufferPool pool : getPools()) pool.FlushPages(pages);
+    }
+
+    // Retire des pools, sans les écrire, les pages désallouées (COMPACT, avant TruncateFiles).
+    public void DiscardFreePages() {
+        for (BufferPool pool : getPools()) pool.DiscardFreePages();
+    }
+
+    // Arrête les écrivains de fond puis écrit les pages modifiées (EXIT).
+    public void Finish() throws IOException {
+        for (BufferPool pool : getPools()) pool.Finish();
+    }
+
+    // Un tour d'écrivain de fond dans chaque pool ; rend le nombre de pages écrites.
+    public int RunBackgroundWriter() throws IOException {
+        int written = 0;
+        for (BufferPool pool : getPools()) written += pool.RunBackgroundWriter();
+        return written;
+    }
+
+    // ---------------------------------------------------
+    // POOLS
+    // ---------------------------------------------------
+    // Nouveau pool vide de `frames` cases (agrandissable jusqu'à 4 fois plus), géré par `policy`.
+    public BufferPool CreatePool(String name, int frames, String policy) {
+        return CreatePool(name, frames, 0, policy);
+    }
+
+    // Idem, agrandissable jusqu'à `max` cases (0 : 4 fois `frames`). Les tableaux par case sont
+    // dimensionnés pour ce maximum à la création, seule la mémoire des cases suit la taille.
+    public BufferPool CreatePool(String name, int frames, int max, String policy) {
+        if (name.isEmpty())
+            throw new IllegalArgumentException("Nom de pool vide");
+        if (frames < 1)
+            throw new IllegalArgumentException("Taille du pool " + name + " invalide : " + frames);
+        if (max != 0 && max < frames)
+            throw new IllegalArgumentException("Taille maximale du pool " + name + " invalide : " + max
+                    + " (au moins " + frames + " cases)");
+        synchronized (pools) {
+            if (pools.containsKey(name))
+                throw new IllegalArgumentException("Le pool " + name + " existe déjà");
+            BufferPool pool = new BufferPool(name, frames, (max > 0) ? max : 4 * frames, policy, config, diskManager,
+                    directory, writeBacks);
+            pools.put(name, pool);
+            return pool;
+        }
+    }
+
+    // Les défauts de page de `target` (relation, HEADERS ou CATALOG) se feront dans `pool` ;
+    // les pages déjà présentes restent où elles sont jusqu'à leur éviction.
+    public void AssignPool(String target, String pool) {
+        BufferPool p = getPool(pool);
+        String key = target.equalsIgnoreCase(HEADERS) || target.equalsIgnoreCase(CATALOG) ? target.toUpperCase() : target;
+        if (p == defaultPool) {
+            assignments.remove(key);
+        } else {
+            assignments.put(key, p);
+        }
+    }
+
+    public BufferPool getPool(String name) {
+        synchronized (pools) {
+            BufferPool pool = pools.get(name);
+            if (pool == null)
+                throw new IllegalArgumentException("Pool inconnu : " + name);
+            return pool;
         }
     }
 
+    public List<BufferPool> getPools() {
+        synchronized (pools) {
+            return new ArrayList<>(pools.values());
+        }
+    }
+
+    // cible -> nom du pool, pour les cibles qui ne sont pas dans le pool "default"
+    public Map<String, String> getAssignments() {
+        Map<String, String> result = new TreeMap<>();
+        assignments.forEach((target, pool) -> result.put(target, pool.getName()));
+        return result;
+    }
+
     // ---------------------------------------------------
-    // CHANGEMENT DE POLITIQUE
+    // RÉGLAGES DU POOL "default"
     // ---------------------------------------------------
     public void SetCurrentReplacementPolicy(String policy) {
-        this.currentPolicy = policy.toUpperCase();
+        defaultPool.SetCurrentReplacementPolicy(policy);
+    }
+
+    public String getCurrentReplacementPolicy() {
+        return defaultPool.getCurrentReplacementPolicy();
+    }
+
+    // BMSETTINGS SIZE : voir BufferPool.Resize ; bm_buffercount suit la taille du pool.
+    public int Resize(int n) {
+        int remaining = defaultPool.Resize(n);
+        config.setBm_buffercount(n);
+        return remaining;
     }
 
     // ---------------------------------------------------
-    // ÉTAT DU BUFFER
+    // ÉTAT ET STATISTIQUES
     // ---------------------------------------------------
     public void printState() {
         System.out.println("=== BufferManager State ===");
-        for (int i = 0; i < pageIds.length; i++) {
-            System.out.println("Slot " + i + ": " +
-                    (pageIds[i] == null ? "EMPTY" : pageIds[i]) +
-                    " pin=" + pinCount[i] +
-                    " dirty=" + dirty[i]);
+        List<BufferPool> all = getPools();
+        for (BufferPool pool : all) {
+            if (all.size() > 1) System.out.println("--- Pool " + pool.getName() + " ---");
+            pool.printState();
         }
     }
 
+    public void printStats() {
+        System.out.println("=== BufferManager Stats ===");
+        List<BufferPool> all = getPools();
+        for (BufferPool pool : all) {
+            if (all.size() > 1) System.out.println("--- Pool " + pool.getName() + " ---");
+            pool.printStats();
+        }
+    }
+
+    public BufferPoolStats getStats() {
+        return defaultPool.getStats();
+    }
+
+    public int getBufferCount() {
+        return defaultPool.getBufferCount();
+    }
+
+    // taille du pool où sont lues les pages de la relation `owner`
+    public int getBufferCount(String owner) {
+        return route(owner, false).getBufferCount();
+    }
+
+    public int getResidentCount() {
+        return defaultPool.getResidentCount();
+    }
+
+    public int getDirtyCount() {
+        return defaultPool.getDirtyCount();
+    }
+
+    public Map<String, Integer> getResidency() {
+        return defaultPool.getResidency();
+    }
+
     // ---------------------------------------------------
     // OUTILS INTERNES
     // ---------------------------------------------------
 
-    private int findPageIndex(PageId pid) {
-        for (int i = 0; i < pageIds.length; i++) {
-            if (pid.equals(pageIds[i])) return i;
-        }
-        return -1;
+    // pool où un défaut de page de cette cible lit la page
+    private BufferPool route(String owner, boolean header) {
+        BufferPool pool = header ? assignments.get(HEADERS) : null;
+        if (pool == null) pool = assignments.get(owner != null ? owner : CATALOG);
+        return (pool != null) ? pool : defaultPool;
     }
 
-    private int findFreeIndex() {
-        for (int i = 0; i < pageIds.length; i++) {
-            if (pageIds[i] == null) return i;
-        }
-        return -1;
-    }
-
-    private int selectVictimIndex() {
-        int victim = -1;
-        long bestTime = (currentPolicy.equalsIgnoreCase("LRU")) ? Long.MAX_VALUE : Long.MIN_VALUE;
-
-        for (int i = 0; i < pageIds.length; i++) {
-            if (pinCount[i] == 0 && pageIds[i] != null) {
-                if (currentPolicy.equalsIgnoreCase("LRU")) {
-                    if (lastAccessTime[i] < bestTime) {
-                        bestTime = lastAccessTime[i];
-                        victim = i;
-                    }
-                } else if (currentPolicy.equalsIgnoreCase("MRU")) {
-                    if (lastAccessTime[i] > bestTime) {
-                        bestTime = lastAccessTime[i];
-                        victim = i;
-                    }
-                }
-            }
+    // pool d'une page présente (épinglée : elle ne peut pas en changer)
+    private BufferPool poolOf(PageId pageId) {
+        BufferPool pool = directory.get(pageId);
+        if (pool == null)
+            throw new RuntimeException("Page non trouvée dans le buffer pool : " + pageId);
+        return pool;
+    }
+
+    private static List<String> splitList(String value) {
+        List<String> items = new ArrayList<>();
+        for (String item : value.split(",")) {
+            if (!item.isBlank()) items.add(item.trim());
         }
-        return victim;
+        return items;
     }
 }
@@ -0,0 +1,877 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Un buffer pool du BufferManager, partagé entre threads : ses cases, sa politique de
+ * remplacement et ses compteurs (BufferPoolStats).
+ *
+ * - Une page n'est présente que dans un pool à la fois : le répertoire commun (directory)
+ *   dit lequel, et les écritures d'éviction en cours (writeBacks) sont communes aussi.
+ * - Un hit ne prend que le verrou de la stripe de sa page (StripedPageTable) ; un pin n'est
+ *   pris que sous ce verrou, donc une case dont le pin vaut 0 sous ce verrou peut être évincée.
+ * - Un seul défaut de page choisit sa victime à la fois (missLock) ; les lectures et écritures
+ *   disque se font hors de tout verrou global, la case étant réservée "en chargement".
+ * - La politique est protégée par policyLock ; les hits et FreePage lui parviennent par
+ *   AccessLog, sans en perdre, sauf pour CLOCK qui les accepte sans verrou.
+ * - Les cases sont des tranches de slabs hors du tas ; la taille se règle à chaud (Resize)
+ *   jusqu'à la capacité du pool, pour laquelle les tableaux par case sont dimensionnés.
+ * - Écrivain de fond et checkpoints : BackgroundWriter ; lecture anticipée : Prefetch et
+ *   SequentialReadAhead ; anneaux des parcours massifs : BufferRing.
+ */
+public class BufferPool {
+
+    private static final int SLAB_ALIGN = 4096;   // les cases restent alignées pour dm_direct_io
+    private static final int SLAB_BYTES = 1 << 20; // une réduction du pool rend des slabs entiers
+
+    private final String name;
+    private final DBConfig config;
+    private final DiskManager diskManager;
+
+    // --- Données du buffer pool ---
+    // cases [0, size) en service ; au-delà, cases sans mémoire ou en cours de retrait
+    private volatile int size;                    // écrit sous missLock et freeFrames
+    private final PageId[] pageIds;               // quelle page est chargée dans chaque buffer
+    private final ByteBuffer[] frames;            // contenu de chaque page : tranche d'un slab, ou null
+    private final ByteBuffer[] views;             // vue de chaque case rendue par PinPage (accès absolus)
+    private final AtomicIntegerArray pinCount;    // nb de "verrous" sur la page
+    private final AtomicIntegerArray dirty;       // 1 si la page a été modifiée
+    private final CompletableFuture<?>[] loading; // lecture en cours dans la case, sinon null
+    private final ReentrantReadWriteLock[] latches;
+    private final boolean[] readAhead;            // lue d'avance et pas encore demandée (verrou : stripe)
+    private final String[] owners;                // relation qui a demandé la page, pour BMSTATS
+
+    private final StripedPageTable pageTable;     // PageId -> case
+    private final Object missLock = new Object(); // choix des victimes, un défaut à la fois
+    private final Object policyLock = new Object();
+
+    private final AccessLog accessLog;            // hits et FreePage pas encore vus par la politique
+    private final boolean[] tracked;              // case connue de la politique (verrou : policyLock)
+
+    private final int[] freeFrames;               // pile des cases vides (verrou : freeFrames)
+    private int freeCount;
+
+    // pages évincées dont l'écriture sur disque n'est pas finie : les relire attend cette écriture
+    private final ConcurrentHashMap<PageId, CompletableFuture<Void>> writeBacks;
+    // pool où se trouve chaque page présente (commun à tous les pools du BufferManager)
+    private final ConcurrentHashMap<PageId, BufferPool> directory;
+    // copie d'une victime, écrite en parallèle de la lecture de la nouvelle page
+    private final ThreadLocal<ByteBuffer> spareFrame;
+
+    private final BufferPoolStats stats = new BufferPoolStats(this);
+
+    private volatile String currentPolicy;        // voir ReplacementPolicy.NAMES
+    private volatile ReplacementPolicy policy;    // écrit sous policyLock
+
+    private final BackgroundWriter writer;
+    private final SequentialReadAhead sequential;
+
+    // Pool de n cases, agrandissable jusqu'à capacity cases (Resize).
+    BufferPool(String name, int n, int capacity, String policyName, DBConfig config, DiskManager diskManager,
+               ConcurrentHashMap<PageId, BufferPool> directory,
+               ConcurrentHashMap<PageId, CompletableFuture<Void>> writeBacks) {
+        this.name = name;
+        this.config = config;
+        this.diskManager = diskManager;
+        this.directory = directory;
+        this.writeBacks = writeBacks;
+        this.currentPolicy = policyName.toUpperCase();
+
+        int pageSize = config.getPagesize();
+
+        pageIds = new PageId[capacity];
+        frames = new ByteBuffer[capacity];
+        views = new ByteBuffer[capacity];
+        pinCount = new AtomicIntegerArray(capacity);
+        dirty = new AtomicIntegerArray(capacity);
+        loading = new CompletableFuture<?>[capacity];
+        latches = new ReentrantReadWriteLock[capacity];
+        readAhead = new boolean[capacity];
+        owners = new String[capacity];
+        tracked = new boolean[capacity];
+        allocateFrames(0, n);
+        size = n;
+        pageTable = new StripedPageTable(n);
+        accessLog = new AccessLog(policyLock, this::replayAccess);
+        sequential = new SequentialReadAhead(this, config.getBm_readahead(), n);
+        freeFrames = new int[capacity];
+        resetFreeFrames();
+        spareFrame = ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(pageSize));
+        policy = newPolicy(currentPolicy);
+        writer = new BackgroundWriter(this, config, diskManager);
+        writer.start(name);
+    }
+
+    // ---------------------------------------------------
+    // GET PAGE
+    // ---------------------------------------------------
+    // La page est rendue sous forme de la vue de sa case (position 0, capacité pagesize),
+    // valable jusqu'au FreePage correspondant. Cette vue est partagée par tous ceux qui
+    // épinglent la page (voir PinPage) : accès absolus seulement. En cas de défaut, elle est
+    // lue dans une case de l'anneau `ring` s'il appartient à ce pool. `owner` : relation qui
+    // la demande (occupation du pool dans BMSTATS). Rend null si la page est dans un autre pool.
+    ByteBuffer GetPage(PageId pageId, BufferRing ring, String owner) throws IOException{
+        int index = pin(pageId, ring, owner, true);
+        return (index == ELSEWHERE) ? null : views[index];
+    }
+
+    // Idem, la page épinglée étant rendue sous forme d'un PageHandle qui connaît sa case. Sa vue
+    // est celle de la case, partagée par tous ceux qui l'épinglent : elle n'est pas recopiée.
+    PageHandle PinPage(PageId pageId, BufferRing ring, String owner) throws IOException{
+        int index = pin(pageId, ring, owner, true);
+        return (index == ELSEWHERE) ? null : new PageHandle(this, pageId, index, views[index]);
+    }
+
+    // Idem pour une page que l'appelant va réécrire entièrement : en cas de défaut, elle n'est
+    // pas lue sur disque, sa case est remise à zéro.
+    PageHandle PinNewPage(PageId pageId, String owner) throws IOException{
+        int index = pin(pageId, null, owner, false);
+        return (index == ELSEWHERE) ? null : new PageHandle(this, pageId, index, views[index]);
+    }
+
+    // Épingle la page et rend sa case, ou ELSEWHERE si elle est dans un autre pool ; read :
+    // un défaut de page lit la page sur disque.
+    private int pin(PageId pageId, BufferRing ring, String owner, boolean read) throws IOException{
+        if (ring != null && ring.pool != this) ring = null;
+        while (true) {
+            // 1️⃣ Vérifier si la page est déjà chargée (verrou de sa stripe seulement)
+            int index;
+            CompletableFuture<?> pending = null;
+            boolean firstUse = false;
+            synchronized (pageTable.lock(pageId)) {
+                index = pageTable.get(pageId);
+                if (index != -1) {
+                    pinCount.incrementAndGet(index);
+                    pending = loading[index];
+                    firstUse = readAhead[index];
+                    readAhead[index] = false;
+                }
+            }
+            if (index != -1) {
+                // un autre thread (ou la lecture anticipée) est en train de la lire ; si cette
+                // lecture échoue, la case a été rendue : on recommence
+                if (pending != null && !pending.handle((v, e) -> e == null).join()) continue;
+                recordAccess(index, false);
+                stats.hits.increment();
+                if (owner != null) owners[index] = owner;
+                if (firstUse) sequential.accessed(pageId, ring);
+                return index;
+            }
+
+            // 2️⃣ Défaut de page ; -1 si un autre thread l'a chargée entre-temps
+            index = loadPage(pageId, ring, read);
+            if (index == ELSEWHERE) return ELSEWHERE;
+            if (index != -1) {
+                owners[index] = owner;
+                if (read) sequential.accessed(pageId, ring);
+                return index;
+            }
+        }
+    }
+
+    // Case réservée par reserveFrame ; victim/victimWrite quand une page dirty en a été évincée.
+    private record Reservation(int index, PageId victim, CompletableFuture<Void> victimWrite) {}
+
+    private static final int ELSEWHERE = -2;
+    // reserveFrame : la page est présente dans un autre pool
+    private static final Reservation IN_OTHER_POOL = new Reservation(ELSEWHERE, null, null);
+
+    // Sous missLock : réserve une case pour pageId (case vide, sinon victime de la politique)
+    // et l'y enregistre, marquée en chargement (load) et épinglée sauf pour un prefetch.
+    // Rend null si la page est déjà présente, IN_OTHER_POOL si elle l'est dans un autre
+    // pool (la page est inscrite au répertoire avant d'être lue). Un prefetch ne prend que des cases propres,
+    // il n'écrit jamais de victime : null aussi s'il n'y en a pas.
+    // Avec un anneau plein, la case réutilisée est celle de la plus ancienne page de l'anneau,
+    // si elle l'occupe encore sans être utilisée ; sinon la politique choisit (un prefetch
+    // est alors abandonné, pour ne pas sortir de l'anneau).
+    private Reservation reserveFrame(PageId pageId, CompletableFuture<Void> load, boolean prefetch, BufferRing ring) {
+        synchronized (pageTable.lock(pageId)) {
+            if (pageTable.get(pageId) != -1) return null;
+        }
+        // inscrite avant toute éviction : aucun autre pool ne peut plus la charger
+        BufferPool home = directory.putIfAbsent(pageId, this);
+        if (home != null && home != this) return IN_OTHER_POOL;
+        Reservation r = null;
+        try {
+            r = claimFrame(pageId, load, prefetch, ring);
+        } finally {
+            if (r == null) directory.remove(pageId, this);
+        }
+        return r;
+    }
+
+    private Reservation claimFrame(PageId pageId, CompletableFuture<Void> load, boolean prefetch, BufferRing ring) {
+        int ringFrame = (ring != null) ? ring.candidate() : -1;
+        if (ringFrame != -1 && !isRingReusable(ring, ringFrame, prefetch)) {
+            if (prefetch) return null;
+            ringFrame = -1;
+        }
+        // Trouver une case libre, sinon appliquer la politique de remplacement
+        int index = (ringFrame == -1) ? findFreeIndex() : -1;
+        PageId victim = null;
+        CompletableFuture<Void> victimWrite = null;
+        while (index == -1) {
+            int candidate;
+            if (ringFrame != -1) {
+                candidate = ringFrame;
+                ringFrame = -1;
+            } else {
+                synchronized (policyLock) {
+                    accessLog.drain();
+                    candidate = policy.selectVictim(pageId, i -> i < size
+                            && pinCount.get(i) == 0 && loading[i] == null && !(prefetch && dirty.get(i) == 1));
+                }
+            }
+            if (candidate == -1) {
+                if (prefetch) return null;
+                throw new RuntimeException("Aucune frame disponible (toutes les pages sont pinnées)");
+            }
+            PageId old = pageIds[candidate];
+            synchronized (pageTable.lock(old)) {
+                // les pins ne sont pris que sous ce verrou : 0 ici => personne ne l'utilise
+                if (pinCount.get(candidate) != 0 || loading[candidate] != null) continue;
+                if (prefetch && dirty.get(candidate) == 1) continue;
+                pageTable.remove(old);
+                directory.remove(old, this);
+                if (dirty.getAndSet(candidate, 0) == 1) {
+                    victimWrite = new CompletableFuture<>();
+                    writeBacks.put(old, victimWrite);
+                }
+            }
+            policyEvict(candidate, old);
+            stats.evictions.increment();
+            if (victimWrite != null) stats.dirtyWriteBacks.increment();
+            victim = old;
+            index = candidate;
+        }
+        // la politique connaît la case avant qu'un autre thread puisse la trouver
+        synchronized (policyLock) {
+            accessLog.drain();
+            policy.onLoad(index, pageId);
+            tracked[index] = true;
+        }
+        synchronized (pageTable.lock(pageId)) {
+            pageTable.put(pageId, index);
+            pageIds[index] = pageId;
+            pinCount.set(index, prefetch ? 0 : 1);
+            loading[index] = load;
+            readAhead[index] = prefetch;
+            owners[index] = null;
+        }
+        if (ring != null) ring.record(index, pageId);
+        return new Reservation(index, victim, victimWrite);
+    }
+
+    // la politique oublie la case ; les accès notés avant l'éviction lui sont d'abord rejoués
+    private void policyEvict(int index, PageId pid) {
+        synchronized (policyLock) {
+            accessLog.drain();
+            tracked[index] = false;
+            policy.onEvict(index, pid);
+        }
+    }
+
+    // Hit (unpin = false) ou FreePage sur la case : passé directement à une politique qui les
+    // accepte sans verrou, sinon noté dans accessLog.
+    private void recordAccess(int index, boolean unpin) {
+        ReplacementPolicy p = policy;
+        if (p.concurrentAccesses()) {
+            if (unpin) p.onUnpin(index);
+            else p.onHit(index);
+            return;
+        }
+        accessLog.record((index << 1) | (unpin ? 1 : 0));
+    }
+
+    // Sous policyLock : un accès noté par accessLog ; ceux d'une case évincée depuis sont ignorés.
+    private void replayAccess(int access) {
+        int index = access >> 1;
+        if (!tracked[index]) return;
+        if ((access & 1) == 1) policy.onUnpin(index);
+        else policy.onHit(index);
+    }
+
+    // la case de l'anneau contient encore sa page, inutilisée (et propre pour un prefetch) ;
+    // une page lue d'avance pour l'anneau mais pas encore demandée n'est pas recyclée
+    private boolean isRingReusable(BufferRing ring, int frame, boolean prefetch) {
+        PageId pid = ring.candidatePage();
+        synchronized (pageTable.lock(pid)) {
+            return frame < size && pageTable.get(pid) == frame && pinCount.get(frame) == 0 && loading[frame] == null
+                    && !readAhead[frame] && !(prefetch && dirty.get(frame) == 1);
+        }
+    }
+
+    // Anneau de min(bm_ringsize, bm_buffercount / 4) cases pour un parcours ou un import massif,
+    // ou null quand les anneaux sont désactivés ou que le pool est trop petit pour en céder.
+    public BufferRing NewBufferRing() {
+        int frames = Math.min(config.getBm_ringsize(), size / 4);
+        return (frames >= 2) ? new BufferRing(this, frames) : null;
+    }
+
+    private int loadPage(PageId pageId, BufferRing ring, boolean read) throws IOException {
+        long start = System.nanoTime();
+        CompletableFuture<Void> load = new CompletableFuture<>();
+        Reservation r;
+        synchronized (missLock) {
+            r = reserveFrame(pageId, load, false, ring);
+        }
+        if (r == null) return -1;
+        if (r == IN_OTHER_POOL) return ELSEWHERE;
+        int index = r.index();
+        PageId victim = r.victim();
+        CompletableFuture<Void> victimWrite = r.victimWrite();
+
+        // Entrées/sorties hors des verrous globaux
+        try {
+            CompletableFuture<Void> writeBack = null;
+            if (victimWrite != null) {
+                // la victime dirty est écrite en parallèle de la lecture de la nouvelle page
+                ByteBuffer copy = spareFrame.get();
+                copy.clear().put(frames[index].duplicate()).flip();
+                writeBack = diskManager.WritePageAsync(victim, copy);
+            }
+            try {
+                CompletableFuture<Void> pendingWrite = writeBacks.get(pageId);
+                if (pendingWrite != null) DiskManager.await(pendingWrite);
+                if (read) diskManager.ReadPage(pageId, frames[index]);
+                else frames[index].put(0, new byte[config.getPagesize()]);
+            } finally {
+                if (writeBack != null) {
+                    try {
+                        DiskManager.await(writeBack);
+                        victimWrite.complete(null);
+                    } catch (IOException | RuntimeException e) {
+                        victimWrite.completeExceptionally(e);
+                        throw e;
+                    } finally {
+                        writeBacks.remove(victim, victimWrite);
+                    }
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            abortLoad(pageId, index);
+            load.completeExceptionally(e);
+            throw e;
+        }
+
+        synchronized (pageTable.lock(pageId)) {
+            loading[index] = null;
+        }
+        load.complete(null);
+        if (read) {
+            stats.misses.increment();
+            stats.missNanos.add(System.nanoTime() - start);
+        }
+        return index;
+    }
+
+    // lecture échouée : la case redevient libre (les threads en attente ne la dépinglent pas)
+    private void abortLoad(PageId pageId, int index) {
+        // hors du répertoire d'abord : un autre pool peut relire la page, la copie d'ici est perdue
+        directory.remove(pageId, this);
+        synchronized (pageTable.lock(pageId)) {
+            pageTable.remove(pageId);
+            pageIds[index] = null;
+            loading[index] = null;
+            readAhead[index] = false;
+            pinCount.set(index, 0);
+            dirty.set(index, 0);
+        }
+        policyEvict(index, pageId);
+        releaseFrame(index);
+    }
+
+    // ---------------------------------------------------
+    // LECTURE ANTICIPÉE
+    // ---------------------------------------------------
+    // Indique que ces pages vont être lues : celles qui ne sont pas déjà présentes sont lues en
+    // arrière-plan dans des cases propres de ce pool (de l'anneau `ring` s'il lui appartient),
+    // sans être épinglées. Ce n'est qu'une indication : une page non allouée, ou pour laquelle
+    // il n'y a pas de case propre, est ignorée.
+    void Prefetch(BufferRing ring, PageId... pages) {
+        if (ring != null && ring.pool != this) ring = null;
+        for (PageId pid : pages) {
+            if (findPageIndex(pid) != -1 || !diskManager.IsAllocated(pid)) continue;
+            CompletableFuture<Void> load = new CompletableFuture<>();
+            Reservation r;
+            synchronized (missLock) {
+                // une page dont l'écriture d'éviction est en cours est relue par GetPage
+                if (writeBacks.containsKey(pid)) continue;
+                r = reserveFrame(pid, load, true, ring);
+            }
+            if (r == null || r == IN_OTHER_POOL) continue;
+            stats.prefetchReads.increment();
+            int index = r.index();
+            diskManager.ReadPageAsync(pid, frames[index]).whenComplete((v, e) -> {
+                if (e == null) {
+                    synchronized (pageTable.lock(pid)) {
+                        loading[index] = null;
+                    }
+                    load.complete(null);
+                    // réduction du pool pendant la lecture : retrait hors du thread d'E/S
+                    if (index >= size) CompletableFuture.runAsync(() -> retireFrame(index));
+                } else {
+                    abortLoad(pid, index);
+                    load.completeExceptionally(e);
+                }
+            });
+        }
+    }
+
+    public int getReadAhead() {
+        return sequential.window();
+    }
+
+    // ---------------------------------------------------
+    // FREE PAGE
+    // ---------------------------------------------------
+    void FreePage(PageId pageId, boolean valdirty) {
+        int index = findPageIndex(pageId);
+        if (index == -1)
+            throw new RuntimeException("Page non trouvée dans le buffer pool : " + pageId);
+        unpin(index, valdirty);
+    }
+
+    // FreePage d'une page épinglée dont on connaît la case (PageHandle.close) : sans recherche.
+    void unpin(int index, boolean valdirty) {
+        // dirty avant le dépinglage : une case à 0 pin peut être évincée aussitôt
+        if (valdirty)
+            dirty.set(index, 1);
+
+        int pins = pinCount.updateAndGet(index, c -> (c > 0) ? c - 1 : 0);
+
+        recordAccess(index, true);
+        // case retirée du pool par Resize pendant qu'elle était épinglée
+        if (pins == 0 && index >= size) retireFrame(index);
+    }
+
+    // Verrou de la case qui contient une page épinglée : en lecture pour lire la page,
+    // en écriture pour la modifier, quand plusieurs threads partagent la page.
+    ReadWriteLock getLatch(PageId pageId) {
+        int index = findPageIndex(pageId);
+        if (index == -1)
+            throw new RuntimeException("Page non trouvée dans le buffer pool : " + pageId);
+        return latches[index];
+    }
+
+    // Verrou d'une case épinglée (PageHandle.getLatch).
+    ReadWriteLock getLatch(int index) {
+        return latches[index];
+    }
+
+    // ---------------------------------------------------
+    // FLUSH BUFFERS
+    // ---------------------------------------------------
+    // Écrit les pages modifiées puis vide le pool ; les autres threads ne doivent plus
+    // avoir de page épinglée. Les pages sont écrites en un lot, triées et regroupées par
+    // fichier (DiskManager.WritePageBatch), directement depuis leurs cases.
+    public void FlushBuffers() throws IOException{
+        synchronized (writer) {
+            synchronized (missLock) {
+                for (int i = 0; i < pageIds.length; i++) {
+                    CompletableFuture<?> pending = loading[i];
+                    if (pending != null) pending.exceptionally(e -> null).join();
+                }
+                int[] batch = new int[pageIds.length];
+                int n = 0;
+                for (int i = 0; i < pageIds.length; i++) {
+                    if (pageIds[i] != null && dirty.get(i) == 1) batch[n++] = i;
+                }
+                PageId[] pids = new PageId[n];
+                ByteBuffer[] bufs = new ByteBuffer[n];
+                for (int k = 0; k < n; k++) {
+                    int i = batch[k];
+                    latches[i].readLock().lock();
+                    pids[k] = pageIds[i];
+                    bufs[k] = frames[i];
+                }
+                try {
+                    diskManager.WritePageBatch(pids, bufs, n);
+                } finally {
+                    for (int k = 0; k < n; k++) latches[batch[k]].readLock().unlock();
+                }
+
+                for (int i = 0; i < pageIds.length; i++) {
+                    if (pageIds[i] != null) directory.remove(pageIds[i], this);
+
+                    // Réinitialisation (la mémoire des cases est réutilisée telle quelle)
+                    pageIds[i] = null;
+                    readAhead[i] = false;
+                    owners[i] = null;
+                    dirty.set(i, 0);
+                    pinCount.set(i, 0);
+                    if (i >= size) dropFrame(i);   // cases en cours de retrait
+                }
+                // écritures des pages retirées par Resize (leurs erreurs ont déjà été signalées)
+                for (CompletableFuture<Void> w : writeBacks.values()) w.exceptionally(e -> null).join();
+                pageTable.clear();
+                resetFreeFrames();
+                synchronized (policyLock) {
+                    accessLog.clear();
+                    Arrays.fill(tracked, false);
+                    policy.reset();
+                }
+                writer.reset();
+            }
+        }
+    }
+
+    // Écrit celles de ces pages qui sont modifiées et présentes dans ce pool, en un lot, sans
+    // les retirer du pool (comme l'écrivain de fond, même si elles sont épinglées).
+    public void FlushPages(Collection<PageId> pages) throws IOException {
+        int[] frames = new int[pages.size()];
+        int n = 0;
+        for (PageId pid : pages) {
+            int index = findPageIndex(pid);
+            if (index != -1) frames[n++] = index;
+        }
+        synchronized (writer) {
+            writer.writeFrames(frames, n, n, true);
+        }
+    }
+
+    // Retire du pool, sans les écrire, les pages qui ne sont plus allouées et que personne
+    // n'utilise, puis attend les écritures d'éviction en cours : plus rien n'est écrit dans les
+    // pages libres d'un fichier que l'on va tronquer (COMPACT). Rend le nombre de pages retirées.
+    public int DiscardFreePages() {
+        int discarded = 0;
+        synchronized (missLock) {
+            for (int i = 0; i < pageIds.length; i++) {
+                PageId pid = pageIds[i];
+                if (pid == null || diskManager.IsAllocated(pid)) continue;
+                synchronized (pageTable.lock(pid)) {
+                    if (pinCount.get(i) != 0 || loading[i] != null) continue;
+                    pageTable.remove(pid);
+                    directory.remove(pid, this);
+                    pageIds[i] = null;
+                    readAhead[i] = false;
+                    owners[i] = null;
+                    dirty.set(i, 0);
+                }
+                policyEvict(i, pid);
+                releaseFrame(i);
+                discarded++;
+            }
+        }
+        for (CompletableFuture<Void> w : writeBacks.values()) w.exceptionally(e -> null).join();
+        return discarded;
+    }
+
+    // Arrête l'écrivain de fond puis écrit les pages modifiées (EXIT).
+    public void Finish() throws IOException {
+        writer.stop();
+        FlushBuffers();
+    }
+
+    // ---------------------------------------------------
+    // ÉCRIVAIN DE FOND
+    // ---------------------------------------------------
+    // Un tour d'écrivain de fond (voir BackgroundWriter.run) ; rend le nombre de pages écrites.
+    public int RunBackgroundWriter() throws IOException {
+        return writer.run();
+    }
+
+    // Cases que la politique évincerait en premier, parmi celles ni épinglées ni en lecture.
+    int coldFrames(int[] out) {
+        synchronized (policyLock) {
+            accessLog.drain();
+            return policy.coldFrames(out, i -> pinCount.get(i) == 0 && loading[i] == null);
+        }
+    }
+
+    boolean isDirty(int index) {
+        return dirty.get(index) == 1;
+    }
+
+    // Épingle la case pour que l'écrivain de fond l'écrive, si elle contient une page chargée et
+    // sale (et pas épinglée, sauf si evenPinned) ; rend sa page, ou null.
+    PageId pinForWrite(int index, boolean evenPinned) {
+        PageId pid = pageIds[index];
+        if (pid == null) return null;
+        synchronized (pageTable.lock(pid)) {
+            if (pageTable.get(pid) != index || loading[index] != null || dirty.get(index) == 0) return null;
+            if (!evenPinned && pinCount.get(index) != 0) return null;
+            pinCount.incrementAndGet(index);
+        }
+        return pid;
+    }
+
+    // Copie de la case épinglée par pinForWrite, sous son verrou ; la case redevient propre
+    // avant la copie : une modification après la copie la re-salit.
+    void copyForWrite(int index, ByteBuffer copy) {
+        latches[index].readLock().lock();
+        try {
+            dirty.set(index, 0);
+            copy.put(0, frames[index], 0, copy.capacity());
+        } finally {
+            latches[index].readLock().unlock();
+        }
+    }
+
+    // écriture échouée : la case est de nouveau sale
+    void redirty(int index) {
+        dirty.set(index, 1);
+    }
+
+    // fin de l'écriture : la case est dépinglée (et retirée si Resize l'a sortie du pool)
+    void unpinAfterWrite(int index) {
+        if (pinCount.decrementAndGet(index) == 0 && index >= size) retireFrame(index);
+    }
+
+    // ---------------------------------------------------
+    // CHANGEMENT DE POLITIQUE
+    // ---------------------------------------------------
+    // La nouvelle politique repart des pages présentes, dans l'ordre des cases.
+    public void SetCurrentReplacementPolicy(String policy) {
+        ReplacementPolicy next = newPolicy(policy);
+        synchronized (missLock) {
+            for (int i = 0; i < pageIds.length; i++) {
+                if (pageIds[i] != null) next.onLoad(i, pageIds[i]);
+            }
+            synchronized (policyLock) {
+                this.currentPolicy = policy.toUpperCase();
+                this.policy = next;
+            }
+        }
+    }
+
+    public String getCurrentReplacementPolicy() {
+        return currentPolicy;
+    }
+
+    // tableaux de la politique pour toutes les cases possibles, cibles réglées sur la taille actuelle
+    private ReplacementPolicy newPolicy(String name) {
+        ReplacementPolicy p = ReplacementPolicy.create(name, pageIds.length);
+        p.onResize(size);
+        return p;
+    }
+
+    // ---------------------------------------------------
+    // TAILLE DU POOL
+    // ---------------------------------------------------
+    // Passe le pool à n cases, sans le vider. Un agrandissement alloue la mémoire des nouvelles
+    // cases ; une réduction retire les cases [n, taille actuelle) : chacune, dès qu'elle n'est
+    // ni épinglée ni en lecture, est rendue (sa page écrite en arrière-plan si elle est
+    // modifiée) et sa mémoire libérée. Les cases épinglées sont retirées à leur dernier
+    // FreePage. Rend le nombre de cases qui restent à retirer.
+    public int Resize(int n) {
+        if (n < 1 || n > pageIds.length)
+            throw new IllegalArgumentException("Taille du pool " + name + " invalide : " + n
+                    + " (entre 1 et " + pageIds.length + " cases, sa taille maximale)");
+        int old;
+        synchronized (missLock) {
+            old = size;
+            synchronized (freeFrames) {
+                if (n > old) {
+                    // les cases en cours de retrait gardent leur page et reprennent du service
+                    allocateFrames(old, n);
+                    for (int i = n - 1; i >= old; i--) {
+                        if (pageIds[i] == null) freeFrames[freeCount++] = i;
+                    }
+                } else {
+                    int kept = 0;
+                    for (int k = 0; k < freeCount; k++) {
+                        int i = freeFrames[k];
+                        if (i < n) freeFrames[kept++] = i;
+                        else dropFrame(i);
+                    }
+                    freeCount = kept;
+                }
+                size = n;
+            }
+            synchronized (policyLock) {
+                policy.onResize(n);
+            }
+            sequential.resize(n);
+        }
+        // une case à la fois : les défauts de page passent entre deux retraits
+        int remaining = 0;
+        for (int i = old - 1; i >= n; i--) {
+            if (!retireFrame(i)) remaining++;
+        }
+        return remaining;
+    }
+
+    // Case i hors du pool : sa page est évincée (écrite de façon asynchrone depuis la case
+    // même, que plus personne n'utilise) et la case rendue. Rend false si elle est encore
+    // épinglée ou en lecture.
+    private boolean retireFrame(int i) {
+        PageId old;
+        ByteBuffer frame;
+        CompletableFuture<Void> write = null;
+        synchronized (missLock) {
+            old = pageIds[i];
+            if (i < size || old == null) return true;
+            synchronized (pageTable.lock(old)) {
+                if (pinCount.get(i) != 0 || loading[i] != null) return false;
+                pageTable.remove(old);
+                directory.remove(old, this);
+                pageIds[i] = null;
+                readAhead[i] = false;
+                owners[i] = null;
+                if (dirty.getAndSet(i, 0) == 1) {
+                    write = new CompletableFuture<>();
+                    writeBacks.put(old, write);
+                }
+            }
+            policyEvict(i, old);
+            stats.evictions.increment();
+            frame = frames[i];
+            releaseFrame(i);
+        }
+        if (write != null) {
+            stats.dirtyWriteBacks.increment();
+            CompletableFuture<Void> done = write;
+            diskManager.WritePageAsync(old, frame).whenComplete((v, e) -> {
+                if (e == null) {
+                    done.complete(null);
+                } else {
+                    System.err.println("Écriture de la page " + old + " retirée du pool impossible : " + e.getMessage());
+                    done.completeExceptionally(e);
+                }
+                writeBacks.remove(old, done);
+            });
+        }
+        return true;
+    }
+
+    // ---------------------------------------------------
+    // ÉTAT DU BUFFER
+    // ---------------------------------------------------
+    public void printState() {
+        for (int i = 0; i < pageIds.length; i++) {
+            if (i >= size && pageIds[i] == null) continue;
+            System.out.println("Slot " + i + ": " +
+                    (pageIds[i] == null ? "EMPTY" : pageIds[i]) +
+                    " pin=" + pinCount.get(i) +
+                    " dirty=" + (dirty.get(i) == 1) +
+                    (i >= size ? " (retrait en cours)" : ""));
+        }
+    }
+
+    // ---------------------------------------------------
+    // STATISTIQUES
+    // ---------------------------------------------------
+    public String getName() {
+        return name;
+    }
+
+    public BufferPoolStats getStats() {
+        return stats;
+    }
+
+    public int getBufferCount() {
+        return size;
+    }
+
+    // taille maximale (Resize) : bm_max_buffercount pour "default", le max de bm_pools ou BMPOOL CREATE sinon
+    public int getCapacity() {
+        return pageIds.length;
+    }
+
+    public int getResidentCount() {
+        int n = 0;
+        for (PageId pid : pageIds) {
+            if (pid != null) n++;
+        }
+        return n;
+    }
+
+    public int getDirtyCount() {
+        int n = 0;
+        for (int i = 0; i < pageIds.length; i++) {
+            if (pageIds[i] != null && dirty.get(i) == 1) n++;
+        }
+        return n;
+    }
+
+    // pages présentes par relation ("" : pages lues hors d'une relation, ex. le catalogue)
+    public Map<String, Integer> getResidency() {
+        Map<String, Integer> residency = new TreeMap<>();
+        for (int i = 0; i < pageIds.length; i++) {
+            if (pageIds[i] == null) continue;
+            String owner = owners[i];
+            residency.merge(owner == null ? "" : owner, 1, Integer::sum);
+        }
+        return residency;
+    }
+
+    public void printStats() {
+        stats.print();
+    }
+
+    // ---------------------------------------------------
+    // OUTILS INTERNES
+    // ---------------------------------------------------
+
+    // Donne de la mémoire aux cases [from, to) qui n'en ont pas : un slab direct par groupe de
+    // SLAB_BYTES / pagesize cases consécutives, libéré par le GC quand toutes ses cases sont
+    // retirées du pool.
+    private void allocateFrames(int from, int to) {
+        int pageSize = config.getPagesize();
+        int perSlab = Math.max(1, SLAB_BYTES / pageSize);
+        for (int first = from / perSlab * perSlab; first < to; first += perSlab) {
+            int lo = Math.max(first, from);
+            int hi = Math.min(first + perSlab, to);
+            int count = 0;
+            for (int i = lo; i < hi; i++) {
+                if (frames[i] == null) count++;
+            }
+            if (count == 0) continue;
+            // alignedSlice arrondit le début et la fin à SLAB_ALIGN : on prévoit les deux
+            int bytes = (count * pageSize + SLAB_ALIGN - 1) / SLAB_ALIGN * SLAB_ALIGN;
+            ByteBuffer slab = ByteBuffer.allocateDirect(bytes + SLAB_ALIGN).alignedSlice(SLAB_ALIGN);
+            int k = 0;
+            for (int i = lo; i < hi; i++) {
+                if (frames[i] != null) continue;
+                frames[i] = slab.slice(k++ * pageSize, pageSize);
+                views[i] = frames[i].duplicate();
+                if (latches[i] == null) latches[i] = new ReentrantReadWriteLock();
+            }
+        }
+    }
+
+    // case sortie du pool : sa mémoire est rendue avec son slab
+    private void dropFrame(int index) {
+        frames[index] = null;
+        views[index] = null;
+    }
+
+    private int findPageIndex(PageId pid) {
+        return pageTable.find(pid);
+    }
+
+    // cases vides, sans mémoire ou non
+    int getFreeCount() {
+        synchronized (freeFrames) {
+            return freeCount;
+        }
+    }
+
+    private int findFreeIndex() {
+        synchronized (freeFrames) {
+            return (freeCount == 0) ? -1 : freeFrames[--freeCount];
+        }
+    }
+
+    // case vidée : de nouveau libre si elle est dans le pool, sinon sa mémoire est rendue
+    private void releaseFrame(int index) {
+        synchronized (freeFrames) {
+            if (index < size) freeFrames[freeCount++] = index;
+            else dropFrame(index);
+        }
+    }
+
+    // toutes les cases sont vides ; la case 0 est servie en premier
+    private void resetFreeFrames() {
+        synchronized (freeFrames) {
+            freeCount = size;
+            for (int i = 0; i < freeCount; i++) freeFrames[i] = freeCount - 1 - i;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+// Counters maintained by a BufferPool, printed by BMSTATS (print) and exported over JMX.
+// LongAdder keeps the hot path free of contention when several threads hit the pool;
+// readers sum on demand.
+public class BufferPoolStats implements BufferPoolStatsMXBean {
+    private final BufferPool pool;
+
+    final LongAdder hits = new LongAdder();
+    final LongAdder misses = new LongAdder();
+    final LongAdder missNanos = new LongAdder();   // time spent in misses, reservation to end of read
+    final LongAdder evictions = new LongAdder();
+    final LongAdder dirtyWriteBacks = new LongAdder(); // dirty victims written by a miss
+    final LongAdder backgroundWrites = new LongAdder();
+    final LongAdder prefetchReads = new LongAdder();
+
+    BufferPoolStats(BufferPool pool) {
+        this.pool = pool;
+    }
+
+    @Override
+    public long getHits() {
+        return hits.sum();
+    }
+
+    @Override
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    @Override
+    public double getHitRatio() {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return (total == 0) ? 0 : (double) h / total;
+    }
+
+    @Override
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    @Override
+    public long getDirtyWriteBacks() {
+        return dirtyWriteBacks.sum();
+    }
+
+    @Override
+    public long getBackgroundWrites() {
+        return backgroundWrites.sum();
+    }
+
+    @Override
+    public long getPrefetchReads() {
+        return prefetchReads.sum();
+    }
+
+    @Override
+    public double getAverageMissLatencyMicros() {
+        long m = misses.sum();
+        return (m == 0) ? 0 : missNanos.sum() / 1000.0 / m;
+    }
+
+    @Override
+    public int getBufferCount() {
+        return pool.getBufferCount();
+    }
+
+    @Override
+    public int getResidentPages() {
+        return pool.getResidentCount();
+    }
+
+    @Override
+    public int getDirtyPages() {
+        return pool.getDirtyCount();
+    }
+
+    @Override
+    public String getPolicy() {
+        return pool.getCurrentReplacementPolicy();
+    }
+
+    @Override
+    public Map<String, Integer> getResidency() {
+        return pool.getResidency();
+    }
+
+    // BMSTATS
+    void print() {
+        long h = getHits();
+        long m = getMisses();
+        System.out.println("Politique : " + pool.getCurrentReplacementPolicy() + ", cases : " + pool.getBufferCount()
+                + " (" + pool.getResidentCount() + " occupées, " + pool.getDirtyCount() + " modifiées)");
+        System.out.println("Accès : " + (h + m) + " (hits " + h + ", misses " + m
+                + String.format(", taux de hit %.1f %%)", 100 * getHitRatio()));
+        System.out.println("Évictions : " + getEvictions()
+                + " (dont " + getDirtyWriteBacks() + " pages modifiées écrites)");
+        System.out.println(String.format("Latence moyenne d'un miss : %.1f µs", getAverageMissLatencyMicros()));
+        System.out.println("Lectures anticipées : " + getPrefetchReads()
+                + ", écritures de fond : " + getBackgroundWrites());
+        System.out.println("Pages présentes par relation :");
+        for (Map.Entry<String, Integer> e : pool.getResidency().entrySet()) {
+            System.out.println("  " + (e.getKey().isEmpty() ? "(hors relation)" : e.getKey()) + " : " + e.getValue());
+        }
+    }
+
+    @Override
+    public void resetCounters() {
+        hits.reset();
+        misses.reset();
+        missNanos.reset();
+        evictions.reset();
+        dirtyWriteBacks.reset();
+        backgroundWrites.reset();
+        prefetchReads.reset();
+    }
+}
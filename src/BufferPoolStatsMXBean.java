@@ -0,0 +1,22 @@
+import java.util.Map;
+
+// JMX view of the buffer pool counters (registered by SGBD as "sgbd:type=BufferPool").
+public interface BufferPoolStatsMXBean {
+    long getHits();
+    long getMisses();
+    double getHitRatio();
+    long getEvictions();
+    long getDirtyWriteBacks();
+    long getBackgroundWrites();
+    long getPrefetchReads();
+    double getAverageMissLatencyMicros();
+
+    int getBufferCount();
+    int getResidentPages();
+    int getDirtyPages();
+    String getPolicy();
+    // resident pages per relation ("" for pages read outside a relation, e.g. the catalog)
+    Map<String, Integer> getResidency();
+
+    void resetCounters();
+}
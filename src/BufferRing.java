@@ -0,0 +1,44 @@
+// Small private set of frames of one pool for one bulk scan or import (BufferManager.NewBufferRing).
+// Once the ring is full, a page it reads replaces the oldest page it read, when that page
+// is still in its frame and unused, instead of a victim of the pool's policy: a large
+// scan then only ever recycles these few frames and leaves the pool's hot pages alone.
+// Pages already in the pool are used where they are. Used by one thread at a time.
+public class BufferRing {
+    final BufferPool pool;          // the frames are frames of this pool
+    private final int[] frames;
+    private final PageId[] pages;   // page the ring read into each of its frames
+    private int count;
+    private int next;               // oldest slot once the ring is full
+
+    BufferRing(BufferPool pool, int size) {
+        this.pool = pool;
+        frames = new int[size];
+        pages = new PageId[size];
+    }
+
+    public int size() {
+        return frames.length;
+    }
+
+    // frame to reuse for the next page, or -1 while the ring is still growing
+    int candidate() {
+        return (count < frames.length) ? -1 : frames[next];
+    }
+
+    // page the ring read into its candidate frame
+    PageId candidatePage() {
+        return pages[next];
+    }
+
+    // pid was just read into `frame` for this ring (the candidate or another frame)
+    void record(int frame, PageId pid) {
+        if (count < frames.length) {
+            frames[count] = frame;
+            pages[count++] = pid;
+        } else {
+            frames[next] = frame;
+            pages[next] = pid;
+            next = (next + 1) % frames.length;
+        }
+    }
+}
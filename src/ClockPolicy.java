@@ -0,0 +1,94 @@
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.IntPredicate;
+
+// CLOCK (second chance): every access sets the frame's reference bit; the hand clears
+// set bits and stops on the first evictable frame whose bit is already clear.
+// Two turns are enough when an evictable frame exists, so selection is amortized O(1).
+// Hits and unpins only set a bit in an atomic array: they need no lock.
+// The hand only sweeps the frames in service (onResize), not the pool's whole capacity.
+public class ClockPolicy implements ReplacementPolicy {
+    private final boolean[] resident;
+    private final AtomicIntegerArray refBit;
+    private int live;               // frames [0, live) are in service
+    private int hand;
+
+    public ClockPolicy(int frames) {
+        resident = new boolean[frames];
+        refBit = new AtomicIntegerArray(frames);
+        live = frames;
+    }
+
+    @Override
+    public void onLoad(int frame, PageId pid) {
+        resident[frame] = true;
+        refBit.set(frame, 1);
+    }
+
+    @Override
+    public void onHit(int frame) {
+        refBit.set(frame, 1);
+    }
+
+    @Override
+    public void onUnpin(int frame) {
+        refBit.set(frame, 1);
+    }
+
+    @Override
+    public boolean concurrentAccesses() {
+        return true;
+    }
+
+    @Override
+    public void onEvict(int frame, PageId pid) {
+        resident[frame] = false;
+        refBit.set(frame, 0);
+    }
+
+    @Override
+    public int selectVictim(PageId incoming, IntPredicate evictable) {
+        int n = live;
+        if (hand >= n) hand = 0;
+        for (int step = 0; step < 2 * n; step++) {
+            int i = hand;
+            hand = (hand + 1) % n;
+            if (!resident[i] || !evictable.test(i)) continue;
+            if (refBit.get(i) == 1) {
+                refBit.set(i, 0);
+            } else {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // the hand would take the frames whose bit is clear first, then the others
+    @Override
+    public int coldFrames(int[] out, IntPredicate candidate) {
+        int n = 0;
+        int frames = live;
+        for (int pass = 0; pass < 2; pass++) {
+            for (int step = 0; step < frames && n < out.length; step++) {
+                int i = (hand + step) % frames;
+                if (resident[i] && (refBit.get(i) == 1) == (pass == 1) && candidate.test(i)) out[n++] = i;
+            }
+        }
+        return n;
+    }
+
+    // frames past the new size are retired by the pool, never chosen here
+    @Override
+    public void onResize(int frames) {
+        live = Math.min(frames, resident.length);
+        if (hand >= live) hand = 0;
+    }
+
+    @Override
+    public void reset() {
+        for (int i = 0; i < resident.length; i++) {
+            resident[i] = false;
+            refBit.set(i, 0);
+        }
+        hand = 0;
+    }
+}
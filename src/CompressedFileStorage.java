@@ -0,0 +1,409 @@
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.IntFunction;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+// Stores every logical page deflated in a variable-size slot of DataN.bin (dm_compression=deflate).
+//
+// File layout: a 16-byte file header (magic, logical page count) followed by slots.
+// Slot = 20-byte header (pageIdx or -1 if free, stored length, capacity, generation, CRC32 of
+// the stored bytes) + capacity bytes. A stored length equal to pagesize means the page did not
+// compress and is kept raw. The page translation table (pageIdx -> slot offset) lives in memory
+// and is rebuilt at open by scanning the slot headers; when a page has several slots, the one
+// with the highest generation whose CRC matches wins.
+//
+// A page is never rewritten in place: each write goes to another slot, and the slot of the
+// previous copy is only released at the next force, once the new copy is on the device. A crash
+// in the middle of a write leaves a torn slot that fails its CRC, and the previous copy is used.
+//
+// Each file has its own lock; pages are deflated and inflated outside it, with a pool of codecs.
+public class CompressedFileStorage implements PageStorage {
+    private static final int MAGIC = 0x5A504732; // "ZPG2"
+    private static final int FILE_HEADER = 16;
+    private static final int SLOT_HEADER = 20;
+    private static final int SLOT_ALIGN = 64;
+
+    private final int pageSize;
+    private final IntFunction<Path> filePath;
+    private final FileChannel[] chans;
+    private final CompressedFile[] files;
+    private final Object[] locks;          // one per file: chans[f], files[f] and the file itself
+
+    // idle codecs; every codec ever created is in `codecs`, ended by close()
+    private final ConcurrentLinkedQueue<Codec> idleCodecs = new ConcurrentLinkedQueue<>();
+    private final List<Codec> codecs = new ArrayList<>();
+
+    // in-memory state of one open file
+    private static class CompressedFile {
+        long[] slotOffset = new long[0];   // per logical page, 0 = never written (reads as zeros)
+        int[] slotCapacity = new int[0];
+        final TreeMap<Integer, ArrayDeque<Long>> freeSlots = new TreeMap<>(); // capacity -> offsets
+        final List<long[]> retired = new ArrayList<>(); // {offset, capacity, pageIdx} of replaced copies, freed at force
+        long end = FILE_HEADER;            // append position
+        int pageCount;                     // logical length in pages
+        int generation;
+        boolean headerDirty;
+
+        void ensureTable(int pages) {
+            if (slotOffset.length >= pages) return;
+            int n = Math.max(pages, slotOffset.length * 2);
+            slotOffset = Arrays.copyOf(slotOffset, n);
+            slotCapacity = Arrays.copyOf(slotCapacity, n);
+        }
+    }
+
+    // deflater, inflater and their buffers, used by one thread at a time
+    private final class Codec {
+        final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        final Inflater inflater = new Inflater();
+        final CRC32 crc = new CRC32();
+        final byte[] plain = new byte[pageSize];
+        final byte[] packed = new byte[SLOT_HEADER + roundUp(pageSize)];
+
+        void end() {
+            deflater.end();
+            inflater.end();
+        }
+    }
+
+    public CompressedFileStorage(DBConfig cfg, IntFunction<Path> filePath) {
+        this.pageSize = cfg.getPagesize();
+        this.filePath = filePath;
+        this.chans = new FileChannel[cfg.getDm_maxfilecount()];
+        this.files = new CompressedFile[cfg.getDm_maxfilecount()];
+        this.locks = new Object[cfg.getDm_maxfilecount()];
+        for (int f = 0; f < locks.length; f++) locks[f] = new Object();
+    }
+
+    @Override
+    public void readPage(int fileIdx, int pageIdx, ByteBuffer dst) throws IOException {
+        Codec codec = acquire();
+        try {
+            byte[] packed = codec.packed;
+            synchronized (locks[fileIdx]) {
+                CompressedFile file = open(fileIdx);
+                if (pageIdx >= file.pageCount)
+                    throw new EOFException("Failed to read full page at PageId(fileIdx=" + fileIdx + ", pageIdx=" + pageIdx + ")");
+                if (pageIdx >= file.slotOffset.length || file.slotOffset[pageIdx] == 0) {
+                    dst.put(new byte[pageSize]); // allocated but never written
+                    return;
+                }
+                // a stored page is never longer than pagesize, even in a larger reused slot
+                ByteBuffer slot = ByteBuffer.wrap(packed, 0, SLOT_HEADER + Math.min(file.slotCapacity[pageIdx], pageSize));
+                readFully(chans[fileIdx], slot, file.slotOffset[pageIdx]);
+            }
+            int storedLen = ByteBuffer.wrap(packed).getInt(4);
+            if (storedLen <= 0 || storedLen > pageSize || !crcMatches(codec, packed, storedLen))
+                throw new IOException("Corrupted compressed page " + pageIdx + " in file " + fileIdx);
+            if (storedLen == pageSize) {
+                dst.put(packed, SLOT_HEADER, pageSize);
+                return;
+            }
+            codec.inflater.reset();
+            codec.inflater.setInput(packed, SLOT_HEADER, storedLen);
+            try {
+                int n = codec.inflater.inflate(codec.plain);
+                if (n != pageSize) throw new IOException("Corrupted compressed page " + pageIdx + " in file " + fileIdx);
+            } catch (DataFormatException e) {
+                throw new IOException("Corrupted compressed page " + pageIdx + " in file " + fileIdx, e);
+            }
+            dst.put(codec.plain);
+        } finally {
+            idleCodecs.offer(codec);
+        }
+    }
+
+    @Override
+    public void writePage(int fileIdx, int pageIdx, ByteBuffer src) throws IOException {
+        Codec codec = acquire();
+        try {
+            byte[] plain = codec.plain;
+            byte[] packed = codec.packed;
+            src.get(plain);
+
+            Deflater deflater = codec.deflater;
+            deflater.reset();
+            deflater.setInput(plain);
+            deflater.finish();
+            int storedLen = deflater.deflate(packed, SLOT_HEADER, pageSize);
+            if (!deflater.finished() || storedLen >= pageSize) {
+                System.arraycopy(plain, 0, packed, SLOT_HEADER, pageSize); // incompressible: keep raw
+                storedLen = pageSize;
+            }
+            codec.crc.reset();
+            codec.crc.update(packed, SLOT_HEADER, storedLen);
+            int crc = (int) codec.crc.getValue();
+
+            synchronized (locks[fileIdx]) {
+                CompressedFile file = open(fileIdx);
+                file.ensureTable(pageIdx + 1);
+                // smallest free slot that fits without wasting more than half of it, else append
+                int capacity = roundUp(storedLen);
+                int writeLen = SLOT_HEADER + storedLen;
+                long offset;
+                Map.Entry<Integer, ArrayDeque<Long>> free = file.freeSlots.ceilingEntry(capacity);
+                if (free != null && free.getKey() <= 2 * capacity) {
+                    offset = free.getValue().pop();
+                    if (free.getValue().isEmpty()) file.freeSlots.remove(free.getKey());
+                    capacity = free.getKey();
+                } else {
+                    offset = file.end;
+                    file.end += SLOT_HEADER + capacity;
+                    writeLen = SLOT_HEADER + capacity; // the whole slot, so the file ends on a slot boundary
+                }
+
+                ByteBuffer header = ByteBuffer.wrap(packed, 0, SLOT_HEADER);
+                header.putInt(pageIdx).putInt(storedLen).putInt(capacity).putInt(++file.generation).putInt(crc);
+                writeFully(chans[fileIdx], ByteBuffer.wrap(packed, 0, writeLen), offset);
+
+                // the slot of the previous copy is released once the new one is forced
+                if (file.slotOffset[pageIdx] != 0)
+                    file.retired.add(new long[] { file.slotOffset[pageIdx], file.slotCapacity[pageIdx], pageIdx });
+                file.slotOffset[pageIdx] = offset;
+                file.slotCapacity[pageIdx] = capacity;
+                if (pageIdx >= file.pageCount) {
+                    file.pageCount = pageIdx + 1;
+                    file.headerDirty = true;
+                }
+            }
+        } finally {
+            idleCodecs.offer(codec);
+        }
+    }
+
+    @Override
+    public int pageCount(int fileIdx) throws IOException {
+        synchronized (locks[fileIdx]) {
+            return open(fileIdx).pageCount;
+        }
+    }
+
+    // logical growth only: pages that were never written read as zeros
+    @Override
+    public void extend(int fileIdx, int pageCount) throws IOException {
+        synchronized (locks[fileIdx]) {
+            CompressedFile file = open(fileIdx);
+            if (pageCount > file.pageCount) {
+                file.pageCount = pageCount;
+                file.headerDirty = true;
+            }
+        }
+    }
+
+    // Drops the pages past pageCount, then cuts the file after its last live slot.
+    @Override
+    public void truncate(int fileIdx, int pageCount) throws IOException {
+        synchronized (locks[fileIdx]) {
+            CompressedFile file = open(fileIdx);
+            if (pageCount >= file.pageCount) return;
+            long liveEnd = FILE_HEADER;
+            for (int p = 0; p < file.slotOffset.length; p++) {
+                if (file.slotOffset[p] == 0) continue;
+                if (p >= pageCount) {
+                    freeSlot(fileIdx, file, file.slotOffset[p], file.slotCapacity[p]);
+                    file.slotOffset[p] = 0;
+                    file.slotCapacity[p] = 0;
+                } else {
+                    liveEnd = Math.max(liveEnd, file.slotOffset[p] + SLOT_HEADER + file.slotCapacity[p]);
+                }
+            }
+            // older copies of the pages kept stay on disk until the next force
+            for (long[] slot : file.retired) {
+                if (slot[2] >= pageCount) freeSlot(fileIdx, file, slot[0], (int) slot[1]);
+                else liveEnd = Math.max(liveEnd, slot[0] + SLOT_HEADER + slot[1]);
+            }
+            file.retired.removeIf(slot -> slot[2] >= pageCount);
+            for (ArrayDeque<Long> offsets : file.freeSlots.values()) {
+                final long end = liveEnd;
+                offsets.removeIf(offset -> offset >= end);
+            }
+            file.freeSlots.values().removeIf(ArrayDeque::isEmpty);
+            file.end = liveEnd;
+            file.pageCount = pageCount;
+            file.headerDirty = true;
+            chans[fileIdx].truncate(liveEnd);
+            writeFileHeader(fileIdx);
+        }
+    }
+
+    // Forces the new copies, then releases the slots of the copies they replaced.
+    @Override
+    public void force(int fileIdx) throws IOException {
+        synchronized (locks[fileIdx]) {
+            if (chans[fileIdx] == null) return;
+            CompressedFile file = files[fileIdx];
+            writeFileHeader(fileIdx);
+            chans[fileIdx].force(false);
+            if (file.retired.isEmpty()) return;
+            for (long[] slot : file.retired) freeSlot(fileIdx, file, slot[0], (int) slot[1]);
+            file.retired.clear();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (int f = 0; f < chans.length; f++) {
+            synchronized (locks[f]) {
+                if (chans[f] == null) continue;
+                force(f);
+                chans[f].force(false); // the released slots
+                chans[f].close();
+                chans[f] = null;
+                files[f] = null;
+            }
+        }
+        synchronized (codecs) {
+            for (Codec codec : codecs) codec.end();
+            codecs.clear();
+            idleCodecs.clear();
+        }
+    }
+
+    private Codec acquire() {
+        Codec codec = idleCodecs.poll();
+        if (codec != null) return codec;
+        codec = new Codec();
+        synchronized (codecs) {
+            codecs.add(codec);
+        }
+        return codec;
+    }
+
+    // CRC of the stored bytes read into codec.packed, against the one in the slot header
+    private static boolean crcMatches(Codec codec, byte[] packed, int storedLen) {
+        codec.crc.reset();
+        codec.crc.update(packed, SLOT_HEADER, storedLen);
+        return (int) codec.crc.getValue() == ByteBuffer.wrap(packed).getInt(16);
+    }
+
+    // under locks[fileIdx]
+    private CompressedFile open(int fileIdx) throws IOException {
+        if (files[fileIdx] != null) return files[fileIdx];
+        FileChannel ch = FileChannel.open(filePath.apply(fileIdx),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        CompressedFile file = new CompressedFile();
+        chans[fileIdx] = ch;
+        files[fileIdx] = file;
+        if (ch.size() == 0) {
+            file.headerDirty = true;
+            writeFileHeader(fileIdx);
+            return file;
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(FILE_HEADER);
+        readFully(ch, header, 0);
+        if (header.getInt(0) != MAGIC)
+            throw new IOException(filePath.apply(fileIdx) + " is not a compressed data file (dm_compression)");
+        file.pageCount = header.getInt(4);
+
+        // rebuild the page translation table from the slot headers
+        int[] bestGeneration = new int[0];
+        ByteBuffer slot = ByteBuffer.allocate(SLOT_HEADER);
+        long offset = FILE_HEADER;
+        long size = ch.size();
+        while (offset + SLOT_HEADER <= size) {
+            slot.clear();
+            readFully(ch, slot, offset);
+            int pageIdx = slot.getInt(0);
+            int capacity = slot.getInt(8);
+            int generation = slot.getInt(12);
+            if (capacity <= 0) break; // torn tail
+            file.generation = Math.max(file.generation, generation);
+            if (pageIdx >= 0) {
+                file.ensureTable(pageIdx + 1);
+                if (bestGeneration.length <= pageIdx) bestGeneration = Arrays.copyOf(bestGeneration, file.slotOffset.length);
+                long current = file.slotOffset[pageIdx];
+                if (current == 0) {
+                    file.slotOffset[pageIdx] = offset;
+                    file.slotCapacity[pageIdx] = capacity;
+                    bestGeneration[pageIdx] = generation;
+                } else {
+                    // two copies (crash before the older one was released): the newest intact one wins
+                    boolean takeNew = (generation > bestGeneration[pageIdx])
+                            ? slotIntact(ch, offset, capacity)
+                            : !slotIntact(ch, current, file.slotCapacity[pageIdx]);
+                    if (takeNew) {
+                        addFree(file, current, file.slotCapacity[pageIdx]);
+                        file.slotOffset[pageIdx] = offset;
+                        file.slotCapacity[pageIdx] = capacity;
+                        bestGeneration[pageIdx] = generation;
+                    } else {
+                        addFree(file, offset, capacity);
+                    }
+                }
+                file.pageCount = Math.max(file.pageCount, pageIdx + 1);
+            } else {
+                addFree(file, offset, capacity);
+            }
+            offset += SLOT_HEADER + capacity;
+        }
+        file.end = offset;
+        return file;
+    }
+
+    // true if the slot at `offset` holds all its stored bytes with a matching CRC
+    private boolean slotIntact(FileChannel ch, long offset, int capacity) throws IOException {
+        ByteBuffer slot = ByteBuffer.allocate(SLOT_HEADER + Math.min(capacity, pageSize));
+        try {
+            readFully(ch, slot, offset);
+        } catch (EOFException e) {
+            return false;
+        }
+        int storedLen = slot.getInt(4);
+        if (storedLen <= 0 || storedLen > Math.min(capacity, pageSize)) return false;
+        CRC32 crc = new CRC32();
+        crc.update(slot.array(), SLOT_HEADER, storedLen);
+        return (int) crc.getValue() == slot.getInt(16);
+    }
+
+    private void writeFileHeader(int fileIdx) throws IOException {
+        CompressedFile file = files[fileIdx];
+        if (!file.headerDirty) return;
+        ByteBuffer header = ByteBuffer.allocate(FILE_HEADER);
+        header.putInt(0, MAGIC).putInt(4, file.pageCount);
+        writeFully(chans[fileIdx], header, 0);
+        file.headerDirty = false;
+    }
+
+    private void freeSlot(int fileIdx, CompressedFile file, long offset, int capacity) throws IOException {
+        ByteBuffer mark = ByteBuffer.allocate(4).putInt(-1).flip();
+        writeFully(chans[fileIdx], mark, offset);
+        addFree(file, offset, capacity);
+    }
+
+    private static void addFree(CompressedFile file, long offset, int capacity) {
+        file.freeSlots.computeIfAbsent(capacity, c -> new ArrayDeque<>()).push(offset);
+    }
+
+    private static int roundUp(int len) {
+        return ((len + SLOT_ALIGN - 1) / SLOT_ALIGN) * SLOT_ALIGN;
+    }
+
+    private static void readFully(FileChannel ch, ByteBuffer dst, long offset) throws IOException {
+        long pos = offset;
+        while (dst.hasRemaining()) {
+            int r = ch.read(dst, pos);
+            if (r < 0) throw new EOFException("Unexpected end of compressed data file at offset " + pos);
+            pos += r;
+        }
+    }
+
+    private static void writeFully(FileChannel ch, ByteBuffer src, long offset) throws IOException {
+        long pos = offset;
+        while (src.hasRemaining()) pos += ch.write(src, pos);
+    }
+}
@@ -8,6 +8,29 @@ public class DBConfig {
     private int dm_maxfilecount;
     private int bm_buffercount;
     private String bm_policy;
+    private String dm_sync_mode = "always";     // always | group | none
+    private int dm_sync_interval_ms = 200;      // group: max delay before a force
+    private long dm_sync_bytes = 4L << 20;      // group: bytes written before a force
+    private String dm_storage = "channel";      // channel | mmap
+    private int dm_mmap_chunk_pages = 1024;     // mmap: pages mapped at a time
+    private int dm_growth_pages = 1;            // files grow by this many pages at a time
+    private int dm_extent_pages = 1;            // pages reserved at once for a relation (1 = no extent)
+    private int dm_max_file_pages = 0;          // max pages per data file (0 = no limit)
+    private boolean dm_spread_relations = false; // new relations go to the least used file
+    private int dm_maxopenfiles = 64;           // channel: data files kept open at once
+    private boolean dm_direct_io = false;       // channel: open data files with O_DIRECT
+    private int dm_io_threads = 2;              // threads serving ReadPageAsync/WritePageAsync
+    private int dm_io_queue_depth = 16;         // max async requests in flight
+    private String dm_compression = "none";     // none | deflate
+    private int bm_bgwriter_interval_ms = 0;    // background writer period (0 = disabled)
+    private int bm_bgwriter_clean_frames = 0;   // unpinned frames kept clean (0 = bm_buffercount / 4)
+    private int bm_bgwriter_max_pages = 32;     // pages written per writer round
+    private int bm_checkpoint_interval_ms = 0;  // incremental checkpoint period (0 = disabled)
+    private int bm_readahead = 0;               // pages read ahead on sequential scans (0 = off)
+    private int bm_ringsize = 16;               // frames of a bulk scan/import ring (0 = no ring)
+    private int bm_max_buffercount = 0;         // BMSETTINGS SIZE limit (0 = 4 x bm_buffercount)
+    private String bm_pools = "";               // extra pools: name:frames[:policy[:max]],... (BMPOOL)
+    private String bm_pool_assign = "";         // target=pool,... (relation, HEADERS, CATALOG)
 
     // Constructor
     public DBConfig(String dbpath, int pagesize, int dm_maxfilecount, int bm_buffercount, String bm_policy) {
@@ -39,6 +62,98 @@ public class DBConfig {
         return bm_policy;
     }
 
+    public String getDm_sync_mode() {
+        return dm_sync_mode;
+    }
+
+    public int getDm_sync_interval_ms() {
+        return dm_sync_interval_ms;
+    }
+
+    public long getDm_sync_bytes() {
+        return dm_sync_bytes;
+    }
+
+    public String getDm_storage() {
+        return dm_storage;
+    }
+
+    public int getDm_mmap_chunk_pages() {
+        return dm_mmap_chunk_pages;
+    }
+
+    public int getDm_growth_pages() {
+        return dm_growth_pages;
+    }
+
+    public int getDm_max_file_pages() {
+        return dm_max_file_pages;
+    }
+
+    public int getDm_maxopenfiles() {
+        return dm_maxopenfiles;
+    }
+
+    public int getDm_extent_pages() {
+        return dm_extent_pages;
+    }
+
+    public boolean isDm_direct_io() {
+        return dm_direct_io;
+    }
+
+    public int getDm_io_threads() {
+        return dm_io_threads;
+    }
+
+    public int getDm_io_queue_depth() {
+        return dm_io_queue_depth;
+    }
+
+    public String getDm_compression() {
+        return dm_compression;
+    }
+
+    public int getBm_bgwriter_interval_ms() {
+        return bm_bgwriter_interval_ms;
+    }
+
+    public int getBm_bgwriter_clean_frames() {
+        return bm_bgwriter_clean_frames;
+    }
+
+    public int getBm_bgwriter_max_pages() {
+        return bm_bgwriter_max_pages;
+    }
+
+    public int getBm_checkpoint_interval_ms() {
+        return bm_checkpoint_interval_ms;
+    }
+
+    public int getBm_readahead() {
+        return bm_readahead;
+    }
+
+    public int getBm_ringsize() {
+        return bm_ringsize;
+    }
+
+    public int getBm_max_buffercount() {
+        return bm_max_buffercount;
+    }
+
+    public String getBm_pools() {
+        return bm_pools;
+    }
+
+    public String getBm_pool_assign() {
+        return bm_pool_assign;
+    }
+
+    public boolean isDm_spread_relations() {
+        return dm_spread_relations;
+    }
+
     // Setters
     public void setDbpath(String dbpath) {
         this.dbpath = dbpath;
@@ -60,6 +175,110 @@ public class DBConfig {
         this.bm_policy = bm_policy;
     }
 
+    public void setDm_sync_mode(String dm_sync_mode) {
+        String mode = dm_sync_mode.trim().toLowerCase();
+        if (!mode.equals("always") && !mode.equals("group") && !mode.equals("none")) {
+            throw new IllegalArgumentException("dm_sync_mode invalide : " + dm_sync_mode + " (always, group ou none)");
+        }
+        this.dm_sync_mode = mode;
+    }
+
+    public void setDm_sync_interval_ms(int dm_sync_interval_ms) {
+        this.dm_sync_interval_ms = dm_sync_interval_ms;
+    }
+
+    public void setDm_sync_bytes(long dm_sync_bytes) {
+        this.dm_sync_bytes = dm_sync_bytes;
+    }
+
+    public void setDm_storage(String dm_storage) {
+        String storage = dm_storage.trim().toLowerCase();
+        if (!storage.equals("channel") && !storage.equals("mmap")) {
+            throw new IllegalArgumentException("dm_storage invalide : " + dm_storage + " (channel ou mmap)");
+        }
+        this.dm_storage = storage;
+    }
+
+    public void setDm_mmap_chunk_pages(int dm_mmap_chunk_pages) {
+        this.dm_mmap_chunk_pages = dm_mmap_chunk_pages;
+    }
+
+    public void setDm_growth_pages(int dm_growth_pages) {
+        this.dm_growth_pages = dm_growth_pages;
+    }
+
+    public void setDm_max_file_pages(int dm_max_file_pages) {
+        this.dm_max_file_pages = dm_max_file_pages;
+    }
+
+    public void setDm_maxopenfiles(int dm_maxopenfiles) {
+        this.dm_maxopenfiles = dm_maxopenfiles;
+    }
+
+    public void setDm_extent_pages(int dm_extent_pages) {
+        this.dm_extent_pages = dm_extent_pages;
+    }
+
+    public void setDm_direct_io(boolean dm_direct_io) {
+        this.dm_direct_io = dm_direct_io;
+    }
+
+    public void setDm_io_threads(int dm_io_threads) {
+        this.dm_io_threads = dm_io_threads;
+    }
+
+    public void setDm_io_queue_depth(int dm_io_queue_depth) {
+        this.dm_io_queue_depth = dm_io_queue_depth;
+    }
+
+    public void setDm_compression(String dm_compression) {
+        String codec = dm_compression.trim().toLowerCase();
+        if (!codec.equals("none") && !codec.equals("deflate")) {
+            throw new IllegalArgumentException("dm_compression invalide : " + dm_compression + " (none ou deflate)");
+        }
+        this.dm_compression = codec;
+    }
+
+    public void setBm_bgwriter_interval_ms(int bm_bgwriter_interval_ms) {
+        this.bm_bgwriter_interval_ms = bm_bgwriter_interval_ms;
+    }
+
+    public void setBm_bgwriter_clean_frames(int bm_bgwriter_clean_frames) {
+        this.bm_bgwriter_clean_frames = bm_bgwriter_clean_frames;
+    }
+
+    public void setBm_bgwriter_max_pages(int bm_bgwriter_max_pages) {
+        this.bm_bgwriter_max_pages = bm_bgwriter_max_pages;
+    }
+
+    public void setBm_checkpoint_interval_ms(int bm_checkpoint_interval_ms) {
+        this.bm_checkpoint_interval_ms = bm_checkpoint_interval_ms;
+    }
+
+    public void setBm_readahead(int bm_readahead) {
+        this.bm_readahead = bm_readahead;
+    }
+
+    public void setBm_ringsize(int bm_ringsize) {
+        this.bm_ringsize = bm_ringsize;
+    }
+
+    public void setBm_max_buffercount(int bm_max_buffercount) {
+        this.bm_max_buffercount = bm_max_buffercount;
+    }
+
+    public void setBm_pools(String bm_pools) {
+        this.bm_pools = bm_pools;
+    }
+
+    public void setBm_pool_assign(String bm_pool_assign) {
+        this.bm_pool_assign = bm_pool_assign;
+    }
+
+    public void setDm_spread_relations(boolean dm_spread_relations) {
+        this.dm_spread_relations = dm_spread_relations;
+    }
+
 
     // Methods
     public static DBConfig LoadDBConfig(String fichierConfig) throws IOException {
@@ -70,6 +289,29 @@ public class DBConfig {
             Integer dm_maxfilecount = null;
             Integer bm_buffercount = 20;
             String bm_policy = "LRU";
+            String dm_sync_mode = null;
+            Integer dm_sync_interval_ms = null;
+            Long dm_sync_bytes = null;
+            String dm_storage = null;
+            Integer dm_mmap_chunk_pages = null;
+            Integer dm_growth_pages = null;
+            Integer dm_extent_pages = null;
+            Integer dm_max_file_pages = null;
+            Integer dm_maxopenfiles = null;
+            Boolean dm_direct_io = null;
+            Integer dm_io_threads = null;
+            Integer dm_io_queue_depth = null;
+            String dm_compression = null;
+            Integer bm_bgwriter_interval_ms = null;
+            Integer bm_bgwriter_clean_frames = null;
+            Integer bm_bgwriter_max_pages = null;
+            Integer bm_checkpoint_interval_ms = null;
+            Integer bm_readahead = null;
+            Integer bm_ringsize = null;
+            Integer bm_max_buffercount = null;
+            String bm_pools = null;
+            String bm_pool_assign = null;
+            Boolean dm_spread_relations = null;
 
             while ((line = reader.readLine()) != null) {
                 line = line.trim();
@@ -105,6 +347,121 @@ public class DBConfig {
                     if(parts.length == 2){
                         bm_policy = parts[1].trim();
                     }
+                } else if (line.startsWith("dm_sync_mode")) {
+                    String[] parts = line.split("=", 2);
+                    if (parts.length == 2) {
+                        dm_sync_mode = parts[1].trim();
+                    }
+                } else if (line.startsWith("dm_sync_interval_ms")) {
+                    String[] parts = line.split("=", 2);
+                    if (parts.length == 2) {
+                        dm_sync_interval_ms = Integer.parseInt(parts[1].trim());
+                    }
+                } else if (line.startsWith("dm_sync_bytes")) {
+                    String[] parts = line.split("=", 2);
+                    if (parts.length == 2) {
+                        dm_sync_bytes = Long.parseLong(parts[1].trim());
+                    }
+                } else if (line.startsWith("dm_storage")) {
+                    String[] parts = line.split("=", 2);
+                    if (parts.length == 2) {
+                        dm_storage = parts[1].trim();
+                    }
+                } else if (line.startsWith("dm_mmap_chunk_pages")) {
+                    String[] parts = line.split("=", 2);
+                    if (parts.length == 2) {
+                        dm_mmap_chunk_pages = Integer.parseInt(parts[1].trim());
+                    }
+                } else if (line.startsWith("dm_growth_pages")) {
+                    String[] parts = line.split("=", 2);
+                    if (parts.length == 2) {
+                        dm_growth_pages = Integer.parseInt(parts[1].trim());
+                    }
+                } else if (line.startsWith("dm_max_file_pages")) {
+                    String[] parts = line.split("=", 2);
+                    if (parts.length == 2) {
+                        dm_max_file_pages = Integer.parseInt(parts[1].trim());
+                    }
+                } else if (line.startsWith("dm_maxopenfiles")) {
+                    String[] parts = line.split("=", 2);
+                    if (parts.length == 2) {
+                        dm_maxopenfiles = Integer.parseInt(parts[1].trim());
+                    }
+                } else if (line.startsWith("dm_extent_pages")) {
+                    String[] parts = line.split("=", 2);
+                    if (parts.length == 2) {
+                        dm_extent_pages = Integer.parseInt(parts[1].trim());
+                    }
+                } else if (line.startsWith("dm_direct_io")) {
+                    String[] parts = line.split("=", 2);
+                    if (parts.length == 2) {
+                        dm_direct_io = Boolean.parseBoolean(parts[1].trim());
+                    }
+                } else if (line.startsWith("dm_io_threads")) {
+                    String[] parts = line.split("=", 2);
+                    if (parts.length == 2) {
+                        dm_io_threads = Integer.parseInt(parts[1].trim());
+                    }
+                } else if (line.startsWith("dm_io_queue_depth")) {
+                    String[] parts = line.split("=", 2);
+                    if (parts.length == 2) {
+                        dm_io_queue_depth = Integer.parseInt(parts[1].trim());
+                    }
+                } else if (line.startsWith("dm_compression")) {
+                    String[] parts = line.split("=", 2);
+                    if (parts.length == 2) {
+                        dm_compression = parts[1].trim();
+                    }
+                } else if (line.startsWith("bm_bgwriter_interval_ms")) {
+                    String[] parts = line.split("=", 2);
+                    if (parts.length == 2) {
+                        bm_bgwriter_interval_ms = Integer.parseInt(parts[1].trim());
+                    }
+                } else if (line.startsWith("bm_bgwriter_clean_frames")) {
+                    String[] parts = line.split("=", 2);
+                    if (parts.length == 2) {
+                        bm_bgwriter_clean_frames = Integer.parseInt(parts[1].trim());
+                    }
+                } else if (line.startsWith("bm_bgwriter_max_pages")) {
+                    String[] parts = line.split("=", 2);
+                    if (parts.length == 2) {
+                        bm_bgwriter_max_pages = Integer.parseInt(parts[1].trim());
+                    }
+                } else if (line.startsWith("bm_checkpoint_interval_ms")) {
+                    String[] parts = line.split("=", 2);
+                    if (parts.length == 2) {
+                        bm_checkpoint_interval_ms = Integer.parseInt(parts[1].trim());
+                    }
+                } else if (line.startsWith("bm_readahead")) {
+                    String[] parts = line.split("=", 2);
+                    if (parts.length == 2) {
+                        bm_readahead = Integer.parseInt(parts[1].trim());
+                    }
+                } else if (line.startsWith("bm_ringsize")) {
+                    String[] parts = line.split("=", 2);
+                    if (parts.length == 2) {
+                        bm_ringsize = Integer.parseInt(parts[1].trim());
+                    }
+                } else if (line.startsWith("bm_max_buffercount")) {
+                    String[] parts = line.split("=", 2);
+                    if (parts.length == 2) {
+                        bm_max_buffercount = Integer.parseInt(parts[1].trim());
+                    }
+                } else if (line.startsWith("bm_pools")) {
+                    String[] parts = line.split("=", 2);
+                    if (parts.length == 2) {
+                        bm_pools = parts[1].trim();
+                    }
+                } else if (line.startsWith("bm_pool_assign")) {
+                    String[] parts = line.split("=", 2);
+                    if (parts.length == 2) {
+                        bm_pool_assign = parts[1].trim();
+                    }
+                } else if (line.startsWith("dm_spread_relations")) {
+                    String[] parts = line.split("=", 2);
+                    if (parts.length == 2) {
+                        dm_spread_relations = Boolean.parseBoolean(parts[1].trim());
+                    }
                 }
             }
 
@@ -112,13 +469,39 @@ public class DBConfig {
                 throw new IllegalArgumentException("Le fichier de configuration est incomplet !");
             }
 
-            return new DBConfig(dbpath, pagesize, dm_maxfilecount, bm_buffercount, bm_policy);
+            DBConfig config = new DBConfig(dbpath, pagesize, dm_maxfilecount, bm_buffercount, bm_policy);
+            if (dm_sync_mode != null) config.setDm_sync_mode(dm_sync_mode);
+            if (dm_sync_interval_ms != null) config.setDm_sync_interval_ms(dm_sync_interval_ms);
+            if (dm_sync_bytes != null) config.setDm_sync_bytes(dm_sync_bytes);
+            if (dm_storage != null) config.setDm_storage(dm_storage);
+            if (dm_mmap_chunk_pages != null) config.setDm_mmap_chunk_pages(dm_mmap_chunk_pages);
+            if (dm_growth_pages != null) config.setDm_growth_pages(dm_growth_pages);
+            if (dm_extent_pages != null) config.setDm_extent_pages(dm_extent_pages);
+            if (dm_max_file_pages != null) config.setDm_max_file_pages(dm_max_file_pages);
+            if (dm_maxopenfiles != null) config.setDm_maxopenfiles(dm_maxopenfiles);
+            if (dm_direct_io != null) config.setDm_direct_io(dm_direct_io);
+            if (dm_io_threads != null) config.setDm_io_threads(dm_io_threads);
+            if (dm_io_queue_depth != null) config.setDm_io_queue_depth(dm_io_queue_depth);
+            if (dm_compression != null) config.setDm_compression(dm_compression);
+            if (bm_bgwriter_interval_ms != null) config.setBm_bgwriter_interval_ms(bm_bgwriter_interval_ms);
+            if (bm_bgwriter_clean_frames != null) config.setBm_bgwriter_clean_frames(bm_bgwriter_clean_frames);
+            if (bm_bgwriter_max_pages != null) config.setBm_bgwriter_max_pages(bm_bgwriter_max_pages);
+            if (bm_checkpoint_interval_ms != null) config.setBm_checkpoint_interval_ms(bm_checkpoint_interval_ms);
+            if (bm_readahead != null) config.setBm_readahead(bm_readahead);
+            if (bm_ringsize != null) config.setBm_ringsize(bm_ringsize);
+            if (bm_max_buffercount != null) config.setBm_max_buffercount(bm_max_buffercount);
+            if (bm_pools != null) config.setBm_pools(bm_pools);
+            if (bm_pool_assign != null) config.setBm_pool_assign(bm_pool_assign);
+            if (dm_spread_relations != null) config.setDm_spread_relations(dm_spread_relations);
+            return config;
         }
     }
 
     @Override
     public String toString() {
         return "DBConfig{dbpath='" + dbpath + "', pagesize=" + pagesize +
-               ", dm_maxfilecount=" + dm_maxfilecount + "buffercount=" + bm_buffercount + "buffer manager policy" + bm_policy + "}";
+               ", dm_maxfilecount=" + dm_maxfilecount + "buffercount=" + bm_buffercount + "buffer manager policy" + bm_policy +
+               ", dm_sync_mode=" + dm_sync_mode + ", dm_storage=" + dm_storage +
+               ", dm_compression=" + dm_compression + "}";
     }
 }
@@ -1,10 +1,18 @@
 
 import java.io.*;
 import java.lang.reflect.Field;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 public class DBManager{
@@ -76,8 +84,11 @@ public class DBManager{
         File dir = new File(config.getDbpath());
         if (!dir.exists()) dir.mkdirs();
         File saveFile = new File(dir, "database.save");
+        File tmpFile = new File(dir, "database.save.tmp");
 
-        try (BufferedWriter w = new BufferedWriter(new FileWriter(saveFile))) {
+        // écrit à côté, forcé sur disque puis renommé : un arrêt brutal laisse l'ancien état ou le nouveau
+        try (FileOutputStream out = new FileOutputStream(tmpFile);
+             BufferedWriter w = new BufferedWriter(new OutputStreamWriter(out))) {
             for (Relation r : tables.values()) {
                 w.write("START_TABLE");
                 w.newLine();
@@ -104,6 +115,17 @@ public class DBManager{
                 w.write("END_TABLE");
                 w.newLine();
             }
+            w.flush();
+            out.getFD().sync();
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to save DB state: " + e.getMessage(), e);
+        }
+        try {
+            try {
+                Files.move(tmpFile.toPath(), saveFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmpFile.toPath(), saveFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
         } catch (IOException e) {
             throw new RuntimeException("Failed to save DB state: " + e.getMessage(), e);
         }
@@ -213,6 +235,48 @@ public class DBManager{
     }
 
     // For tests or external use
+    // Compactage des fichiers : les pages des relations situées en fin de fichier sont
+    // déplacées dans les trous libres, puis chaque fichier est tronqué après sa dernière
+    // page utilisée. Avant la troncature, les pages des relations déplacées sont écrites et
+    // forcées avec les bitmaps, et l'état (pages d'en-tête) est sauvegardé : la troncature ne
+    // coupe plus que des pages libres. Le cache n'est pas vidé. Retourne le nombre de pages
+    // libérées.
+    public int Compact() throws IOException {
+        for (Relation r : tables.values()) {
+            r.releaseExtent();
+        }
+
+        Map<PageId, Relation> owners = new HashMap<>();
+        for (Relation r : tables.values()) {
+            PageId hp = r.getHeaderPageId();
+            if (hp == null || hp.getFileIdx() < 0) continue;
+            owners.put(hp, r);
+            for (PageId pid : r.getDataPages()) owners.put(pid, r);
+        }
+        List<PageId> pages = new ArrayList<>(owners.keySet());
+        pages.sort(Comparator.comparingInt(PageId::getPageIdx).reversed());
+        Set<Relation> moved = new HashSet<>();
+        for (PageId pid : pages) {
+            PageId target = diskManager.AllocPageBelow(pid);
+            if (target == null) continue;
+            owners.get(pid).relocatePage(pid, target);
+            moved.add(owners.get(pid));
+        }
+
+        // pages déplacées et pages dont un lien a changé (en-têtes, voisines)
+        List<PageId> changed = new ArrayList<>();
+        for (Relation r : moved) {
+            changed.add(r.getHeaderPageId());
+            changed.addAll(r.getDataPages());
+        }
+        bufferManager.FlushPages(changed);
+        diskManager.Checkpoint();
+        SaveState();
+        // les pages désallouées ne doivent plus être réécrites par le buffer pool
+        bufferManager.DiscardFreePages();
+        return diskManager.TruncateFiles();
+    }
+
     public Collection<Relation> getAllRelations() {
         return Collections.unmodifiableCollection(tables.values());
     }
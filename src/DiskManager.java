@@ -1,18 +1,51 @@
-import java.io.EOFException;
 import java.io.IOException;
-import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
-import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class DiskManager implements AutoCloseable {
+    private static final int MAX_RUN_PAGES = 256;  // pages per gather write of WritePageBatch
     private final DBConfig cfg;
     private final Path binDataDir;
 
-    private final RandomAccessFile[] rafs;
-    private final FileChannel[] chans;
+    private final PageStorage storage;   // dm_storage ("channel" or "mmap") or dm_compression
+
+    // In-memory space map of every file (see SpaceMap: one bitmap page per group of
+    // pagesize*8 pages). Loaded once in Init(), kept in sync by Alloc/Dealloc, the dirty
+    // bitmap pages are written back lazily by Checkpoint()/Finish().
+    private final SpaceMap[] spaceMaps;
+    private final int[] pageCounts;      // cached file size in pages
+
+    // In-memory directory of the DataN.bin files that exist, read once from BinData,
+    // so that allocation never asks the file system whether a file exists.
+    private BitSet existingFiles;
+
+    // Durability (dm_sync_mode): "always" forces after every write, "group" batches
+    // the forces on a timer or byte threshold, "none" only forces at Checkpoint()/Finish().
+    private final String syncMode;
+    private final boolean[] unsynced;    // files written since their last force
+    private long unsyncedBytes;
+    private final AtomicLong forces = new AtomicLong(); // files forced since the DiskManager was created
+    private ScheduledExecutorService syncTimer;
+
+    // Asynchronous path: dm_io_threads I/O threads, at most dm_io_queue_depth requests in flight
+    private ExecutorService ioPool;
+    private final Semaphore inFlight;
 
     public DiskManager(DBConfig cfg) {
         this.cfg = cfg;
@@ -21,28 +54,98 @@ public class DiskManager implements AutoCloseable {
         if (commentPos >= 0) raw = raw.substring(0, commentPos);
         raw = raw.trim();
         this.binDataDir = Paths.get(raw).resolve("BinData");
-        this.rafs = new RandomAccessFile[cfg.getDm_maxfilecount()];
-        this.chans = new FileChannel[cfg.getDm_maxfilecount()];
+        if (cfg.isDm_direct_io() && cfg.getDm_storage().equals("mmap")) {
+            throw new IllegalArgumentException("dm_direct_io requires dm_storage=channel");
+        }
+        if (cfg.getDm_compression().equals("deflate") && (cfg.isDm_direct_io() || cfg.getDm_storage().equals("mmap"))) {
+            throw new IllegalArgumentException("dm_compression requires dm_storage=channel without dm_direct_io");
+        }
+        if (cfg.getDm_compression().equals("deflate")) {
+            this.storage = new CompressedFileStorage(cfg, this::filePath);
+        } else if (cfg.getDm_storage().equals("mmap")) {
+            this.storage = new MappedFileStorage(cfg, this::filePath);
+        } else {
+            this.storage = new FileChannelStorage(cfg, this::filePath);
+        }
+        this.spaceMaps = new SpaceMap[cfg.getDm_maxfilecount()];
+        this.pageCounts = new int[cfg.getDm_maxfilecount()];
+        this.syncMode = cfg.getDm_sync_mode();
+        this.unsynced = new boolean[cfg.getDm_maxfilecount()];
+        this.inFlight = new Semaphore(Math.max(1, cfg.getDm_io_queue_depth()));
     }
 
     // ----------- Init / Finish -----------
     public void Init() throws IOException {
         Files.createDirectories(binDataDir);
+        storage.open();
         ensureFileInitialized(0); // make sure Data0.bin exists with meta page
+        // load the bitmap of every existing file once; AllocPage then works in memory
+        BitSet files = existingFiles();
+        for (int f = files.nextSetBit(0); f >= 0 && f < cfg.getDm_maxfilecount(); f = files.nextSetBit(f + 1)) {
+            if (spaceMaps[f] == null) loadSpaceMap(f);
+        }
+        if (syncMode.equals("group") && syncTimer == null) {
+            syncTimer = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "dm-group-sync");
+                t.setDaemon(true);
+                return t;
+            });
+            long period = Math.max(1, cfg.getDm_sync_interval_ms());
+            syncTimer.scheduleWithFixedDelay(() -> {
+                try {
+                    Sync();
+                } catch (IOException e) {
+                    System.err.println("Group sync failed: " + e.getMessage());
+                }
+            }, period, period, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    // Forces every file written since its last force (whatever the sync mode).
+    // Like every force here, it runs outside the monitor: allocation goes on meanwhile.
+    public void Sync() throws IOException {
+        forceFiles(takeUnsynced());
+    }
+
+    // Writes back the dirty bitmap pages and forces every open file.
+    public void Checkpoint() throws IOException {
+        BitSet files = new BitSet();
+        synchronized (this) {
+            for (int f = 0; f < spaceMaps.length; f++) {
+                if (spaceMaps[f] == null) continue;
+                writeSpaceMap(f);
+                files.set(f);
+            }
+            Arrays.fill(unsynced, false);
+            unsyncedBytes = 0;
+        }
+        forceFiles(files);
     }
 
     public void Finish() throws IOException {
-        for (int i = 0; i < chans.length; i++) {
-            if (chans[i] != null && chans[i].isOpen()) {
-                chans[i].force(true);
-                chans[i].close();
+        if (syncTimer != null) {
+            // no interrupt: an interrupted force would close the file's channel
+            syncTimer.shutdown();
+            try {
+                syncTimer.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
             }
-            chans[i] = null;
+            syncTimer = null;
         }
-        for (int i = 0; i < rafs.length; i++) {
-            if (rafs[i] != null) rafs[i].close();
-            rafs[i] = null;
+        synchronized (this) {
+            if (ioPool != null) {
+                ioPool.shutdown(); // lets the requests in flight complete
+                try {
+                    ioPool.awaitTermination(1, TimeUnit.MINUTES);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                ioPool = null;
+            }
         }
+        Checkpoint();
+        storage.close();
     }
 
     @Override
@@ -51,18 +154,19 @@ public class DiskManager implements AutoCloseable {
     }
 
     // ----------- AllocPage (Step 3B) -----------
-    public PageId AllocPage() throws IOException {
-        // 1) try to reuse a freed page in existing files
+    public synchronized PageId AllocPage() throws IOException {
+        // 1) try to reuse a free page in existing files
         for (int f = 0; f < cfg.getDm_maxfilecount(); f++) {
-            if (!Files.exists(filePath(f))) continue;
+            if (spaceMaps[f] == null) continue;
             int freeIdx = findFreePageInFile(f);
             if (freeIdx >= 1) {
                 markPageUsed(f, freeIdx, true);
                 return new PageId(f, freeIdx);
             }
         }
-        // 2) else create/init file and allocate next page
+        // 2) else create/init the next file and allocate from it
         for (int f = 0; f < cfg.getDm_maxfilecount(); f++) {
+            if (spaceMaps[f] != null) continue;
             ensureFileInitialized(f);
             int freeIdx = findFreePageInFile(f);
             if (freeIdx >= 1) {
@@ -73,150 +177,476 @@ public class DiskManager implements AutoCloseable {
         throw new IOException("No more files available (dm_maxfilecount reached).");
     }
 
+    // Allocates a page as close as possible after nearHint, in the same file
+    // (falls back to AllocPage() when that file is full or nearHint is null).
+    public synchronized PageId AllocPage(PageId nearHint) throws IOException {
+        if (nearHint == null || nearHint.getFileIdx() < 0 || nearHint.getFileIdx() >= cfg.getDm_maxfilecount())
+            return AllocPage();
+        int f = nearHint.getFileIdx();
+        ensureFileInitialized(f);
+        int freeIdx = spaceMaps[f].findFreeNear(nearHint.getPageIdx());
+        if (freeIdx < 1) return AllocPage();
+        ensurePageCapacity(f, freeIdx);
+        markPageUsed(f, freeIdx, true);
+        return new PageId(f, freeIdx);
+    }
+
+    // File where a new relation should place its pages: with dm_spread_relations, the one
+    // with the fewest used pages, files not created yet counting as empty (so relations
+    // spread over the files); otherwise -1, the relation takes the first free page.
+    public synchronized int ChooseFileForRelation() {
+        if (!cfg.isDm_spread_relations()) return -1;
+        int best = 0;
+        int bestUsed = Integer.MAX_VALUE;
+        for (int f = 0; f < cfg.getDm_maxfilecount(); f++) {
+            int used = spaceMaps[f] == null ? 0 : spaceMaps[f].usedCount();
+            if (used < bestUsed) {
+                best = f;
+                bestUsed = used;
+            }
+        }
+        return best;
+    }
+
+    // True when pid is a data page currently allocated (bitmap pages and pages of
+    // files that do not exist are not).
+    public synchronized boolean IsAllocated(PageId pid) {
+        int f = pid.getFileIdx();
+        if (f < 0 || f >= spaceMaps.length || spaceMaps[f] == null || pid.getPageIdx() < 1) return false;
+        return spaceMaps[f].isUsed(pid.getPageIdx()) && !spaceMaps[f].isBitmapPage(pid.getPageIdx());
+    }
+
+    // ----------- AllocExtent -----------
+    // Reserves `pages` contiguous pages in a single file and returns the first one.
+    public synchronized PageId AllocExtent(int pages) throws IOException {
+        return AllocExtent(pages, null);
+    }
+
+    // Same, preferring a run right after nearHint in its file.
+    public synchronized PageId AllocExtent(int pages, PageId nearHint) throws IOException {
+        return allocRun(pages, nearHint, false);
+    }
+
+    // Like AllocExtent, but the pages stay free on disk until ClaimPage: the unused part of
+    // the reservation is lost at a restart instead of staying allocated for good.
+    public synchronized PageId ReserveExtent(int pages, PageId nearHint) throws IOException {
+        return allocRun(pages, nearHint, true);
+    }
+
+    // A page of a ReserveExtent run is now in use; the next Checkpoint stores it as such.
+    public synchronized void ClaimPage(PageId pid) {
+        spaceMaps[pid.getFileIdx()].claim(pid.getPageIdx());
+    }
+
+    private PageId allocRun(int pages, PageId nearHint, boolean reserve) throws IOException {
+        int groupSize = cfg.getPagesize() * 8; // an extent never spans a bitmap page
+        if (pages < 1 || pages > groupSize) {
+            throw new IllegalArgumentException("Extent size must be between 1 and " + groupSize);
+        }
+        if (nearHint != null && nearHint.getFileIdx() >= 0 && nearHint.getFileIdx() < cfg.getDm_maxfilecount()) {
+            int f = nearHint.getFileIdx();
+            ensureFileInitialized(f);
+            int first = spaceMaps[f].findFreeRun(nearHint.getPageIdx(), pages);
+            if (first >= 1) {
+                markRun(f, first, pages, reserve);
+                return new PageId(f, first);
+            }
+        }
+        for (int pass = 0; pass < 2; pass++) {
+            for (int f = 0; f < cfg.getDm_maxfilecount(); f++) {
+                // pass 0: existing files only, pass 1: create files as needed
+                if ((spaceMaps[f] == null) != (pass == 1)) continue;
+                ensureFileInitialized(f);
+                int first = spaceMaps[f].findFreeRun(pages);
+                if (first >= 1) {
+                    markRun(f, first, pages, reserve);
+                    return new PageId(f, first);
+                }
+            }
+        }
+        throw new IOException("No room for an extent of " + pages + " pages (dm_maxfilecount reached).");
+    }
+
     // ----------- Step 3C: WritePage / ReadPage -----------
     public void WritePage(PageId pid, byte[] buff) throws IOException {
-        if (buff.length != cfg.getPagesize()) {
+        WritePage(pid, ByteBuffer.wrap(buff));
+    }
+
+    public void ReadPage(PageId pid, byte[] buff) throws IOException {
+        ReadPage(pid, ByteBuffer.wrap(buff));
+    }
+
+    // Same as above on the remaining bytes of `buff` (e.g. a frame of the buffer pool);
+    // the position of `buff` is left unchanged.
+    public void WritePage(PageId pid, ByteBuffer buff) throws IOException {
+        checkPageBuffer(buff);
+        prepareWrite(pid.getFileIdx(), pid.getPageIdx());
+
+        storage.writePage(pid.getFileIdx(), pid.getPageIdx(), buff.duplicate());
+        afterWrite(pid.getFileIdx(), buff.remaining());
+    }
+
+    public void ReadPage(PageId pid, ByteBuffer buff) throws IOException {
+        checkPageBuffer(buff);
+        storage.readPage(pid.getFileIdx(), pid.getPageIdx(), buff.duplicate());
+    }
+
+    private void checkPageBuffer(ByteBuffer buff) {
+        if (buff.remaining() != cfg.getPagesize()) {
             throw new IllegalArgumentException("Buffer size must equal pagesize (" + cfg.getPagesize() + ")");
         }
-        ensureFileInitialized(pid.getFileIdx());
-        ensurePageCapacity(pid.getFileIdx(), pid.getPageIdx());
+    }
 
-        FileChannel ch = channel(pid.getFileIdx());
-        ByteBuffer bb = ByteBuffer.wrap(buff);
-        long offset = ((long) pid.getPageIdx()) * cfg.getPagesize();
-        ch.write(bb, offset);
-        ch.force(false);
+    // ----------- ReadPageAsync / WritePageAsync -----------
+    // Run ReadPage/WritePage on the I/O threads. The caller blocks only when
+    // dm_io_queue_depth requests are already in flight.
+    public CompletableFuture<Void> ReadPageAsync(PageId pid, byte[] buff) {
+        return submitIO(() -> ReadPage(pid, buff));
     }
 
-    public void ReadPage(PageId pid, byte[] buff) throws IOException {
-        if (buff.length != cfg.getPagesize()) {
-            throw new IllegalArgumentException("Buffer size must equal pagesize (" + cfg.getPagesize() + ")");
+    public CompletableFuture<Void> ReadPageAsync(PageId pid, ByteBuffer buff) {
+        return submitIO(() -> ReadPage(pid, buff));
+    }
+
+    public CompletableFuture<Void> WritePageAsync(PageId pid, byte[] buff) {
+        return submitIO(() -> WritePage(pid, buff));
+    }
+
+    public CompletableFuture<Void> WritePageAsync(PageId pid, ByteBuffer buff) {
+        return submitIO(() -> WritePage(pid, buff));
+    }
+
+    // Waits for an async request and rethrows its IOException.
+    public static void await(CompletableFuture<?> io) throws IOException {
+        try {
+            io.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException ioe) throw ioe;
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            throw e;
+        }
+    }
+
+    private interface PageIO {
+        void run() throws IOException;
+    }
+
+    private CompletableFuture<Void> submitIO(PageIO op) {
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        inFlight.acquireUninterruptibly();
+        try {
+            ioPool().execute(() -> {
+                try {
+                    op.run();
+                    done.complete(null);
+                } catch (Throwable t) {
+                    done.completeExceptionally(t);
+                } finally {
+                    inFlight.release();
+                }
+            });
+        } catch (RuntimeException e) {
+            inFlight.release();
+            done.completeExceptionally(e);
         }
-        FileChannel ch = channel(pid.getFileIdx());
-        ByteBuffer bb = ByteBuffer.wrap(buff);
-        long offset = ((long) pid.getPageIdx()) * cfg.getPagesize();
-        int r = ch.read(bb, offset);
-        if (r != cfg.getPagesize()) {
-            throw new EOFException("Failed to read full page at " + pid);
+        return done;
+    }
+
+    private synchronized ExecutorService ioPool() {
+        if (ioPool == null) {
+            ioPool = Executors.newFixedThreadPool(Math.max(1, cfg.getDm_io_threads()), r -> {
+                Thread t = new Thread(r, "dm-io");
+                t.setDaemon(true);
+                return t;
+            });
         }
+        return ioPool;
     }
 
-    // ----------- Step 3D: DeallocPage -----------
-public void DeallocPage(PageId pid) throws IOException {
-    if (pid.getPageIdx() == 0) {
-        throw new IllegalArgumentException("Cannot deallocate meta page (page 0)");
+    // ----------- ReadPages / WritePages (vectored) -----------
+    // Moves `count` consecutive pages of one file with a single scatter read / gather write.
+    public void ReadPages(PageId first, int count, ByteBuffer[] dst) throws IOException {
+        storage.readPages(first.getFileIdx(), first.getPageIdx(), checkRun(count, dst));
+    }
+
+    public void WritePages(PageId first, int count, ByteBuffer[] src) throws IOException {
+        ByteBuffer[] run = checkRun(count, src);
+        prepareWrite(first.getFileIdx(), first.getPageIdx() + count - 1);
+        storage.writePages(first.getFileIdx(), first.getPageIdx(), run);
+        afterWrite(first.getFileIdx(), ((long) count) * cfg.getPagesize());
+    }
+
+    private ByteBuffer[] checkRun(int count, ByteBuffer[] buffers) {
+        if (count < 1 || count > buffers.length) {
+            throw new IllegalArgumentException("count must be between 1 and " + buffers.length);
+        }
+        for (int i = 0; i < count; i++) {
+            if (buffers[i].remaining() != cfg.getPagesize()) {
+                throw new IllegalArgumentException("Buffer size must equal pagesize (" + cfg.getPagesize() + ")");
+            }
+        }
+        return count == buffers.length ? buffers : Arrays.copyOf(buffers, count);
+    }
+
+    // ----------- WritePageBatch -----------
+    // Writes pids[i] from bufs[i] for i < count (FlushBuffers, background writer). The pages
+    // are sorted by (fileIdx, pageIdx) and each run of consecutive pages goes out in one
+    // gather write; different files are written in parallel on the I/O threads, and
+    // dm_sync_mode is applied once per file at the end ("always": a single force per file)
+    // instead of after every page. Returns once every write is done; the first failure is
+    // rethrown after the other files are finished.
+    public void WritePageBatch(PageId[] pids, ByteBuffer[] bufs, int count) throws IOException {
+        if (count == 0) return;
+        Integer[] order = new Integer[count];
+        for (int k = 0; k < count; k++) {
+            checkPageBuffer(bufs[k]);
+            order[k] = k;
+        }
+        Arrays.sort(order, Comparator.comparingInt((Integer k) -> pids[k].getFileIdx())
+                .thenComparingInt(k -> pids[k].getPageIdx()));
+
+        List<int[]> files = new ArrayList<>();   // [from, to) of order for each file
+        int from = 0;
+        while (from < count) {
+            int fileIdx = pids[order[from]].getFileIdx();
+            int to = from + 1;
+            while (to < count && pids[order[to]].getFileIdx() == fileIdx) to++;
+            files.add(new int[] { from, to });
+            from = to;
+        }
+        if (files.size() == 1) {
+            writeFileRuns(pids, bufs, order, 0, count);
+            return;
+        }
+        List<CompletableFuture<Void>> pending = new ArrayList<>();
+        for (int[] f : files) pending.add(submitIO(() -> writeFileRuns(pids, bufs, order, f[0], f[1])));
+        IOException ioFailure = null;
+        RuntimeException failure = null;
+        for (CompletableFuture<Void> io : pending) {
+            try {
+                await(io);
+            } catch (IOException e) {
+                if (ioFailure == null) ioFailure = e;
+            } catch (RuntimeException e) {
+                if (failure == null) failure = e;
+            }
+        }
+        if (ioFailure != null) throw ioFailure;
+        if (failure != null) throw failure;
+    }
+
+    // order[from..to): pages of one file, sorted
+    private void writeFileRuns(PageId[] pids, ByteBuffer[] bufs, Integer[] order, int from, int to) throws IOException {
+        int fileIdx = pids[order[from]].getFileIdx();
+        prepareWrite(fileIdx, pids[order[to - 1]].getPageIdx());
+        int start = from;
+        while (start < to) {
+            int end = start + 1;
+            while (end < to && end - start < MAX_RUN_PAGES
+                    && pids[order[end]].getPageIdx() == pids[order[end - 1]].getPageIdx() + 1) end++;
+            ByteBuffer[] run = new ByteBuffer[end - start];
+            for (int k = start; k < end; k++) run[k - start] = bufs[order[k]].duplicate();
+            storage.writePages(fileIdx, pids[order[start]].getPageIdx(), run);
+            start = end;
+        }
+        afterWrite(fileIdx, ((long) (to - from)) * cfg.getPagesize());
     }
-    if (!Files.exists(filePath(pid.getFileIdx()))) {
+
+    // ----------- Step 3D: DeallocPage -----------
+public synchronized void DeallocPage(PageId pid) throws IOException {
+    if (pid.getFileIdx() < 0 || pid.getFileIdx() >= spaceMaps.length || spaceMaps[pid.getFileIdx()] == null) {
         throw new IOException("File does not exist for " + pid);
     }
+    if (spaceMaps[pid.getFileIdx()].isBitmapPage(pid.getPageIdx())) {
+        throw new IllegalArgumentException("Cannot deallocate meta page (page " + pid.getPageIdx() + ")");
+    }
     // mark page as free in bitmap
     markPageUsed(pid.getFileIdx(), pid.getPageIdx(), false);
 }
 
-    // ----------- Helpers for files & bitmap -----------
-    private Path filePath(int fileIdx) {
-        return binDataDir.resolve("Data" + fileIdx + ".bin");
+    // ----------- Compaction -----------
+    // Allocates the lowest free page of pid's file if it lies before pid, else returns null.
+    public synchronized PageId AllocPageBelow(PageId pid) throws IOException {
+        SpaceMap map = spaceMaps[pid.getFileIdx()];
+        if (map == null) return null;
+        int freeIdx = map.findFreeBelow(pid.getPageIdx());
+        if (freeIdx < 1) return null;
+        markPageUsed(pid.getFileIdx(), freeIdx, true);
+        return new PageId(pid.getFileIdx(), freeIdx);
     }
 
-    private RandomAccessFile raf(int fileIdx) throws IOException {
-        if (rafs[fileIdx] == null)
-            rafs[fileIdx] = new RandomAccessFile(filePath(fileIdx).toFile(), "rw");
-        return rafs[fileIdx];
+    // Cuts every file after its last used page; returns the number of pages released.
+    public synchronized int TruncateFiles() throws IOException {
+        int released = 0;
+        for (int f = 0; f < spaceMaps.length; f++) {
+            SpaceMap map = spaceMaps[f];
+            if (map == null) continue;
+            int keep = map.lastUsedPage() + 1;
+            int count = storage.pageCount(f);
+            if (count <= keep) continue;
+            map.truncate(keep);
+            writeSpaceMap(f);
+            storage.truncate(f, keep);
+            force(f);
+            pageCounts[f] = storage.pageCount(f);
+            released += count - pageCounts[f];
+        }
+        return released;
     }
 
-    private FileChannel channel(int fileIdx) throws IOException {
-        if (chans[fileIdx] == null || !chans[fileIdx].isOpen())
-            chans[fileIdx] = raf(fileIdx).getChannel();
-        return chans[fileIdx];
+    // ----------- Helpers for files & bitmap -----------
+    private Path filePath(int fileIdx) {
+        return binDataDir.resolve("Data" + fileIdx + ".bin");
     }
 
     private void ensureFileInitialized(int fileIdx) throws IOException {
-        Path p = filePath(fileIdx);
-        if (Files.exists(p)) return;
         if (fileIdx >= cfg.getDm_maxfilecount())
             throw new IOException("fileIdx >= dm_maxfilecount");
-        try (RandomAccessFile raf = new RandomAccessFile(p.toFile(), "rw")) {
-            raf.setLength(cfg.getPagesize()); // page 0 = meta/bitmap
-            // Initialiser la meta page avec des zéros
-            byte[] zeros = new byte[cfg.getPagesize()];
-            raf.seek(0);
-            raf.write(zeros);
+        if (spaceMaps[fileIdx] != null) return;
+        if (!existingFiles().get(fileIdx)) {
+            // page 0 = meta/bitmap, initialisée avec des zéros (le format du fichier dépend du PageStorage)
+            storage.writePage(fileIdx, 0, ByteBuffer.allocate(cfg.getPagesize()));
+            existingFiles.set(fileIdx);
+        }
+        loadSpaceMap(fileIdx);
+    }
+
+    // lists BinData once; afterwards the directory is kept up to date by ensureFileInitialized
+    private BitSet existingFiles() throws IOException {
+        if (existingFiles != null) return existingFiles;
+        BitSet found = new BitSet();
+        if (Files.isDirectory(binDataDir)) {
+            try (DirectoryStream<Path> dir = Files.newDirectoryStream(binDataDir, "Data*.bin")) {
+                for (Path p : dir) {
+                    String name = p.getFileName().toString();
+                    try {
+                        found.set(Integer.parseInt(name.substring(4, name.length() - 4)));
+                    } catch (NumberFormatException ignore) { }
+                }
+            }
         }
+        existingFiles = found;
+        return found;
     }
 
-    private int computeNextPageIdx(int fileIdx) throws IOException {
-        long size = channel(fileIdx).size();
-        return (int) (size / cfg.getPagesize());
+    // allocation state is shared with the I/O threads: only the page copy runs unlocked
+    private synchronized void prepareWrite(int fileIdx, int lastPageIdx) throws IOException {
+        ensureFileInitialized(fileIdx);
+        ensurePageCapacity(fileIdx, lastPageIdx);
     }
 
     private void ensurePageCapacity(int fileIdx, int pageIdx) throws IOException {
-        FileChannel ch = channel(fileIdx);
-        long need = ((long) (pageIdx + 1)) * cfg.getPagesize();
-        if (ch.size() < need) {
-            ByteBuffer zeros = ByteBuffer.allocate(cfg.getPagesize());
-            while (ch.size() < need) {
-                ch.write(zeros, ch.size());
-                zeros.clear();
-            }
-            ch.force(false);
+        if (pageIdx < pageCounts[fileIdx]) return;
+        int count = storage.pageCount(fileIdx);
+        if (count <= pageIdx) {
+            // grow by whole dm_growth_pages chunks, never past dm_max_file_pages
+            int growth = Math.max(1, cfg.getDm_growth_pages());
+            int target = (int) Math.min(maxPagesPerFile(), ((long) pageIdx / growth + 1) * growth);
+            target = Math.max(target, pageIdx + 1);
+            storage.extend(fileIdx, target);
+            // forced with the next write to the file, or by the next Sync/Checkpoint
+            unsynced[fileIdx] = true;
+            unsyncedBytes += ((long) (target - count)) * cfg.getPagesize();
         }
+        pageCounts[fileIdx] = storage.pageCount(fileIdx);
     }
 
-    private boolean readBitmapBit(int fileIdx, int pageIdx) throws IOException {
-        if (pageIdx <= 0) return true; // meta always used
-        int k = pageIdx - 1;
-        int byteIdx = k / 8;
-        int bit = k % 8;
-        ByteBuffer one = ByteBuffer.allocate(1);
-        int r = channel(fileIdx).read(one, byteIdx);
-        if (r <= 0) return false; // default free
-        int b = one.get(0) & 0xFF;
-        return (b & (1 << bit)) != 0;
+    // Applies dm_sync_mode after a write to fileIdx.
+    private void afterWrite(int fileIdx, long bytes) throws IOException {
+        if (syncMode.equals("always")) {
+            force(fileIdx);
+        } else {
+            BitSet due = noteWrite(fileIdx, bytes);
+            if (due != null) forceFiles(due);
+        }
     }
 
-    private void writeBitmapBit(int fileIdx, int pageIdx, boolean used) throws IOException {
-        int k = pageIdx - 1;
-        int byteIdx = k / 8;
-        int bit = k % 8;
-        FileChannel ch = channel(fileIdx);
-        ByteBuffer one = ByteBuffer.allocate(1);
-        int r = ch.read(one, byteIdx);
-        int b = (r > 0) ? (one.get(0) & 0xFF) : 0;
-        if (used) b |= (1 << bit); else b &= ~(1 << bit);
-        one.clear();
-        one.put((byte) (b & 0xFF)).flip();
-        ch.write(one, byteIdx);
-        ch.force(false);
+    private void force(int fileIdx) throws IOException {
+        forces.incrementAndGet();
+        storage.force(fileIdx);
     }
 
-    private void markPageUsed(int fileIdx, int pageIdx, boolean used) throws IOException {
-        if (pageIdx == 0)
-            throw new IllegalArgumentException("cannot mark meta page");
-        writeBitmapBit(fileIdx, pageIdx, used);
+    // Number of file forces so far (one per file per Sync/Checkpoint, one per write in "always").
+    public long getForceCount() {
+        return forces.get();
     }
 
-    private int findFreePageInFile(int fileIdx) throws IOException {
-        FileChannel ch = channel(fileIdx);
-        ByteBuffer meta = ByteBuffer.allocate(cfg.getPagesize());
-        int r = ch.read(meta, 0);
-        if (r != cfg.getPagesize()) throw new EOFException("meta page incomplete");
-        meta.flip();
-
-        for (int byteIdx = 0; byteIdx < meta.limit(); byteIdx++) {
-            int b = meta.get(byteIdx) & 0xFF;
-            if (b != 0xFF) {
-                for (int bit = 0; bit < 8; bit++) {
-                    if ((b & (1 << bit)) == 0) {
-                        int candidate = 1 + (byteIdx * 8 + bit);
-                        ensurePageCapacity(fileIdx, candidate);
-                        return candidate;
-                    }
+    // Records an unforced write; returns the files to force now ("group" threshold reached), or null.
+    private synchronized BitSet noteWrite(int fileIdx, long bytes) {
+        unsynced[fileIdx] = true;
+        unsyncedBytes += bytes;
+        return (syncMode.equals("group") && unsyncedBytes >= cfg.getDm_sync_bytes()) ? takeUnsynced() : null;
+    }
+
+    // The files written since their last force, now considered forced.
+    private synchronized BitSet takeUnsynced() {
+        BitSet files = new BitSet();
+        for (int f = 0; f < unsynced.length; f++) {
+            if (unsynced[f]) files.set(f);
+            unsynced[f] = false;
+        }
+        unsyncedBytes = 0;
+        return files;
+    }
+
+    // Called without the monitor; the files left unforced by a failure stay unsynced.
+    private void forceFiles(BitSet files) throws IOException {
+        for (int f = files.nextSetBit(0); f >= 0; f = files.nextSetBit(f + 1)) {
+            try {
+                force(f);
+            } catch (IOException e) {
+                synchronized (this) {
+                    for (int g = f; g >= 0; g = files.nextSetBit(g + 1)) unsynced[g] = true;
                 }
+                throw e;
             }
         }
-        int next = computeNextPageIdx(fileIdx);
-        ensurePageCapacity(fileIdx, next);
-        return next;
+    }
+
+    // dm_max_file_pages, or the largest page index a file can address
+    private int maxPagesPerFile() {
+        int max = cfg.getDm_max_file_pages();
+        return max > 0 ? max : Integer.MAX_VALUE;
+    }
+
+    // reads the bitmap page of every group present in the file
+    private void loadSpaceMap(int fileIdx) throws IOException {
+        SpaceMap map = new SpaceMap(cfg.getPagesize(), maxPagesPerFile());
+        int count = storage.pageCount(fileIdx);
+        ByteBuffer bitmap = ByteBuffer.allocate(cfg.getPagesize());
+        for (int g = 0; map.bitmapPageOf(g) < count; g++) {
+            bitmap.clear();
+            storage.readPage(fileIdx, map.bitmapPageOf(g), bitmap);
+            map.loadGroup(g, bitmap);
+        }
+        spaceMaps[fileIdx] = map;
+        pageCounts[fileIdx] = count;
+    }
+
+    private void writeSpaceMap(int fileIdx) throws IOException {
+        SpaceMap map = spaceMaps[fileIdx];
+        for (int g = map.dirtyGroups().nextSetBit(0); g >= 0; g = map.dirtyGroups().nextSetBit(g + 1)) {
+            int bitmapPage = map.bitmapPageOf(g);
+            ensurePageCapacity(fileIdx, bitmapPage);
+            storage.writePage(fileIdx, bitmapPage, ByteBuffer.wrap(map.storeGroup(g)));
+        }
+    }
+
+    private void markRun(int fileIdx, int first, int pages, boolean reserve) throws IOException {
+        if (reserve) spaceMaps[fileIdx].reserveRange(first, first + pages);
+        else spaceMaps[fileIdx].setRange(first, first + pages, true);
+        ensurePageCapacity(fileIdx, first + pages - 1);
+    }
+
+    private void markPageUsed(int fileIdx, int pageIdx, boolean used) {
+        spaceMaps[fileIdx].set(pageIdx, used);
+    }
+
+    private int findFreePageInFile(int fileIdx) throws IOException {
+        int candidate = spaceMaps[fileIdx].findFree();
+        if (candidate < 0) return -1; // file full (dm_max_file_pages), try the next file
+        ensurePageCapacity(fileIdx, candidate);
+        return candidate;
     }
 
     public DBConfig getConfig(){
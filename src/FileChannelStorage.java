@@ -0,0 +1,226 @@
+import com.sun.nio.file.ExtendedOpenOption;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.IntFunction;
+
+// Positional read/write syscalls on the FileChannel of each data file. The channels live
+// in a FileHandleCache bounded by dm_maxopenfiles, so hundreds of files can be used
+// without keeping a descriptor open for each of them.
+// With dm_direct_io the files are opened with O_DIRECT (bypassing the OS page cache);
+// every transfer then goes through block-aligned direct buffers; open() checks pagesize
+// against the file system block size, so a bad configuration fails at startup.
+public class FileChannelStorage implements PageStorage {
+    private final int pageSize;
+    private final IntFunction<Path> filePath;
+    private final boolean directIo;
+
+    private final FileHandleCache handles;
+
+    // direct I/O only: file system block size and a per-thread aligned bounce buffer
+    private int blockSize;
+    private final ThreadLocal<ByteBuffer> bounce = new ThreadLocal<>();
+
+    public FileChannelStorage(DBConfig cfg, IntFunction<Path> filePath) {
+        this.pageSize = cfg.getPagesize();
+        this.filePath = filePath;
+        this.directIo = cfg.isDm_direct_io();
+        this.handles = new FileHandleCache(cfg.getDm_maxopenfiles(), this::openChannel);
+    }
+
+    @Override
+    public void open() throws IOException {
+        if (!directIo) return;
+        int bs = (int) Files.getFileStore(filePath.apply(0).getParent()).getBlockSize();
+        if (pageSize % bs != 0) {
+            throw new IllegalArgumentException("dm_direct_io: pagesize (" + pageSize
+                    + ") must be a multiple of the file system block size (" + bs + ")");
+        }
+        blockSize = bs;
+    }
+
+    @Override
+    public void readPage(int fileIdx, int pageIdx, ByteBuffer dst) throws IOException {
+        FileChannel ch = handles.acquire(fileIdx);
+        try {
+            if (directIo && !isAligned(dst)) {
+                ByteBuffer aligned = bounce(1);
+                readPage(fileIdx, pageIdx, aligned);
+                dst.put(aligned.flip());
+                return;
+            }
+            long offset = ((long) pageIdx) * pageSize;
+            int total = 0;
+            while (dst.hasRemaining()) {
+                int r = ch.read(dst, offset + total);
+                if (r < 0) throw new EOFException("Failed to read full page at PageId(fileIdx=" + fileIdx + ", pageIdx=" + pageIdx + ")");
+                total += r;
+            }
+        } finally {
+            handles.release(fileIdx);
+        }
+    }
+
+    @Override
+    public void writePage(int fileIdx, int pageIdx, ByteBuffer src) throws IOException {
+        FileChannel ch = handles.acquire(fileIdx);
+        try {
+            if (directIo && !isAligned(src)) {
+                ByteBuffer aligned = bounce(1);
+                aligned.put(src).flip();
+                writePage(fileIdx, pageIdx, aligned);
+                return;
+            }
+            long offset = ((long) pageIdx) * pageSize;
+            int total = 0;
+            while (src.hasRemaining()) {
+                total += ch.write(src, offset + total);
+            }
+            handles.markWritten(fileIdx);
+        } finally {
+            handles.release(fileIdx);
+        }
+    }
+
+    // scatter read: the whole run in as few syscalls as the OS allows
+    @Override
+    public void readPages(int fileIdx, int firstPage, ByteBuffer[] dsts) throws IOException {
+        FileChannel ch = handles.acquire(fileIdx);
+        try {
+            if (directIo && !allAligned(dsts)) {
+                ByteBuffer aligned = bounce(dsts.length);
+                readPage(fileIdx, firstPage, aligned); // one aligned read for the whole run
+                for (int i = 0; i < dsts.length; i++) dsts[i].put(aligned.slice(i * pageSize, pageSize));
+                return;
+            }
+            long expected = ((long) dsts.length) * pageSize;
+            synchronized (ch) { // scattering reads use the channel position
+                ch.position(((long) firstPage) * pageSize);
+                long total = 0;
+                while (total < expected) {
+                    long r = ch.read(dsts);
+                    if (r < 0) throw new EOFException("Failed to read " + dsts.length + " pages at PageId(fileIdx=" + fileIdx + ", pageIdx=" + firstPage + ")");
+                    total += r;
+                }
+            }
+        } finally {
+            handles.release(fileIdx);
+        }
+    }
+
+    // gather write: the whole run in as few syscalls as the OS allows
+    @Override
+    public void writePages(int fileIdx, int firstPage, ByteBuffer[] srcs) throws IOException {
+        FileChannel ch = handles.acquire(fileIdx);
+        try {
+            if (directIo && !allAligned(srcs)) {
+                ByteBuffer aligned = bounce(srcs.length);
+                for (ByteBuffer src : srcs) aligned.put(src);
+                writePage(fileIdx, firstPage, aligned.flip());
+                return;
+            }
+            long expected = ((long) srcs.length) * pageSize;
+            synchronized (ch) {
+                ch.position(((long) firstPage) * pageSize);
+                long total = 0;
+                while (total < expected) {
+                    total += ch.write(srcs);
+                }
+            }
+            handles.markWritten(fileIdx);
+        } finally {
+            handles.release(fileIdx);
+        }
+    }
+
+    @Override
+    public int pageCount(int fileIdx) throws IOException {
+        FileChannel ch = handles.acquire(fileIdx);
+        try {
+            return (int) (ch.size() / pageSize);
+        } finally {
+            handles.release(fileIdx);
+        }
+    }
+
+    @Override
+    public void extend(int fileIdx, int pageCount) throws IOException {
+        FileChannel ch = handles.acquire(fileIdx);
+        try {
+            long need = ((long) pageCount) * pageSize;
+            if (ch.size() >= need) return;
+            if (directIo) {
+                // O_DIRECT channel: only aligned writes are allowed, so write the last page
+                ByteBuffer zeros = bounce(1);
+                while (zeros.hasRemaining()) zeros.put((byte) 0);
+                writePage(fileIdx, pageCount - 1, zeros.flip());
+            } else {
+                // sparse growth in one call: the file system zero-fills the new region
+                ch.write(ByteBuffer.allocate(1), need - 1);
+                handles.markWritten(fileIdx);
+            }
+        } finally {
+            handles.release(fileIdx);
+        }
+    }
+
+    @Override
+    public void truncate(int fileIdx, int pageCount) throws IOException {
+        FileChannel ch = handles.acquire(fileIdx);
+        try {
+            long keep = ((long) pageCount) * pageSize;
+            if (ch.size() > keep) ch.truncate(keep);
+            handles.markWritten(fileIdx);
+        } finally {
+            handles.release(fileIdx);
+        }
+    }
+
+    @Override
+    public void force(int fileIdx) throws IOException {
+        handles.force(fileIdx);
+    }
+
+    @Override
+    public void close() throws IOException {
+        handles.closeAll();
+    }
+
+    private FileChannel openChannel(int fileIdx) throws IOException {
+        Path p = filePath.apply(fileIdx);
+        if (directIo) {
+            if (!Files.exists(p)) Files.createFile(p);
+            return FileChannel.open(p, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                    ExtendedOpenOption.DIRECT);
+        }
+        return FileChannel.open(p, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    private boolean isAligned(ByteBuffer buf) {
+        return buf.isDirect() && buf.alignmentOffset(buf.position(), blockSize) == 0;
+    }
+
+    private boolean allAligned(ByteBuffer[] bufs) {
+        for (ByteBuffer buf : bufs) {
+            if (!isAligned(buf)) return false;
+        }
+        return true;
+    }
+
+    // block-aligned direct buffer of `pages` pages, cleared, reused by the calling thread
+    private ByteBuffer bounce(int pages) {
+        int size = pages * pageSize;
+        ByteBuffer buf = bounce.get();
+        if (buf == null || buf.capacity() < size) {
+            int bs = Math.max(blockSize, 1);
+            buf = ByteBuffer.allocateDirect(size + bs).alignedSlice(bs);
+            bounce.set(buf);
+        }
+        buf.clear().limit(size);
+        return buf;
+    }
+}
@@ -0,0 +1,97 @@
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+// Bounded set of open FileChannels (dm_maxopenfiles), least recently used closed first.
+//
+// A channel is pinned between acquire() and release() and never closed while pinned;
+// if every cached channel is pinned the cache grows past its capacity until releases.
+// Files written since their last force stay marked when their channel is closed, so
+// force() reopens them instead of skipping them.
+public class FileHandleCache {
+    public interface Opener {
+        FileChannel open(int fileIdx) throws IOException;
+    }
+
+    private static class Handle {
+        final FileChannel channel;
+        int pins;
+
+        Handle(FileChannel channel) {
+            this.channel = channel;
+        }
+    }
+
+    private final int capacity;
+    private final Opener opener;
+    private final LinkedHashMap<Integer, Handle> handles = new LinkedHashMap<>(16, 0.75f, true);
+    private final BitSet unforced = new BitSet();
+
+    public FileHandleCache(int capacity, Opener opener) {
+        this.capacity = Math.max(1, capacity);
+        this.opener = opener;
+    }
+
+    public synchronized FileChannel acquire(int fileIdx) throws IOException {
+        Handle h = handles.get(fileIdx);
+        if (h == null) {
+            h = new Handle(opener.open(fileIdx));
+            handles.put(fileIdx, h);
+            evict();
+        }
+        h.pins++;
+        return h.channel;
+    }
+
+    public synchronized void release(int fileIdx) throws IOException {
+        Handle h = handles.get(fileIdx);
+        if (h != null && h.pins > 0) h.pins--;
+        evict();
+    }
+
+    public synchronized void markWritten(int fileIdx) {
+        unforced.set(fileIdx);
+    }
+
+    // forces fileIdx if it was written since its last force, even if its channel was closed;
+    // the channel stays pinned during the force, which runs outside the monitor
+    public void force(int fileIdx) throws IOException {
+        FileChannel ch;
+        synchronized (this) {
+            if (!unforced.get(fileIdx)) return;
+            // cleared first: a write marked during the force is forced next time
+            unforced.clear(fileIdx);
+            ch = acquire(fileIdx);
+        }
+        try {
+            ch.force(false);
+        } catch (IOException e) {
+            markWritten(fileIdx);
+            throw e;
+        } finally {
+            release(fileIdx);
+        }
+    }
+
+    public synchronized int openCount() {
+        return handles.size();
+    }
+
+    public synchronized void closeAll() throws IOException {
+        for (int f = unforced.nextSetBit(0); f >= 0; f = unforced.nextSetBit(f + 1)) force(f);
+        for (Handle h : handles.values()) h.channel.close();
+        handles.clear();
+    }
+
+    private void evict() throws IOException {
+        Iterator<Handle> it = handles.values().iterator();
+        while (handles.size() > capacity && it.hasNext()) {
+            Handle h = it.next();
+            if (h.pins > 0) continue;
+            h.channel.close();
+            it.remove();
+        }
+    }
+}
@@ -0,0 +1,82 @@
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+// Doubly linked list of frame indexes stored in two int arrays, so that moving a
+// frame to the end or unlinking it is O(1) and allocates nothing. A frame is in
+// the list at most once. Used by the replacement policies as LRU queues.
+public class FrameList {
+    private final int[] prev;
+    private final int[] next;
+    private final boolean[] member;
+    private int head = -1;
+    private int tail = -1;
+    private int size;
+
+    public FrameList(int frames) {
+        prev = new int[frames];
+        next = new int[frames];
+        member = new boolean[frames];
+    }
+
+    public boolean contains(int frame) {
+        return member[frame];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // oldest frame, or -1
+    public int first() {
+        return head;
+    }
+
+    // newest frame, or -1
+    public int last() {
+        return tail;
+    }
+
+    public int next(int frame) {
+        return next[frame];
+    }
+
+    public int prev(int frame) {
+        return prev[frame];
+    }
+
+    // appends the frames accepted by `candidate` to out[n..], oldest first; returns the new n
+    public int collect(int[] out, int n, IntPredicate candidate) {
+        for (int f = head; f >= 0 && n < out.length; f = next[f]) {
+            if (candidate.test(f)) out[n++] = f;
+        }
+        return n;
+    }
+
+    public void addLast(int frame) {
+        if (member[frame]) remove(frame);
+        prev[frame] = tail;
+        next[frame] = -1;
+        if (tail >= 0) next[tail] = frame; else head = frame;
+        tail = frame;
+        member[frame] = true;
+        size++;
+    }
+
+    public void moveToLast(int frame) {
+        if (frame != tail) addLast(frame);
+    }
+
+    public void remove(int frame) {
+        if (!member[frame]) return;
+        if (prev[frame] >= 0) next[prev[frame]] = next[frame]; else head = next[frame];
+        if (next[frame] >= 0) prev[next[frame]] = prev[frame]; else tail = prev[frame];
+        member[frame] = false;
+        size--;
+    }
+
+    public void clear() {
+        Arrays.fill(member, false);
+        head = tail = -1;
+        size = 0;
+    }
+}
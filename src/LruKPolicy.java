@@ -0,0 +1,97 @@
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.function.IntPredicate;
+
+// LRU-2 (O'Neil, O'Neil & Weikum): the victim is the frame whose second most recent
+// access is the oldest; pages referenced only once since they were loaded go first
+// (oldest first), so a scan cannot push out pages that are used repeatedly.
+// The last access of evicted pages is kept for a while, so a page read again soon
+// keeps its history. Unpins are not accesses.
+public class LruKPolicy implements ReplacementPolicy {
+    private final long[] last;      // logical time of the last access of each frame
+    private final long[] previous;  // time of the access before it, 0 = none
+    private final TreeSet<Integer> order;
+    private final Map<Long, Long> history;
+    private long clock;
+    private int retained;           // evicted pages whose history is kept (one per frame)
+
+    public LruKPolicy(int frames) {
+        last = new long[frames];
+        previous = new long[frames];
+        order = new TreeSet<>((a, b) -> {
+            int c = Long.compare(previous[a], previous[b]);
+            if (c == 0) c = Long.compare(last[a], last[b]);
+            return (c != 0) ? c : Integer.compare(a, b);
+        });
+        retained = Math.max(1, frames);
+        history = new LinkedHashMap<>(16, 0.75f, false) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Long> eldest) {
+                return size() > retained;
+            }
+        };
+    }
+
+    @Override
+    public void onLoad(int frame, PageId pid) {
+        Long seen = history.remove(PageTable.key(pid));
+        previous[frame] = (seen != null) ? seen : 0;
+        last[frame] = ++clock;
+        order.add(frame);
+    }
+
+    @Override
+    public void onHit(int frame) {
+        order.remove(frame);
+        previous[frame] = last[frame];
+        last[frame] = ++clock;
+        order.add(frame);
+    }
+
+    @Override
+    public void onUnpin(int frame) {
+    }
+
+    @Override
+    public void onEvict(int frame, PageId pid) {
+        if (order.remove(frame)) history.put(PageTable.key(pid), last[frame]);
+    }
+
+    @Override
+    public int selectVictim(PageId incoming, IntPredicate evictable) {
+        Iterator<Integer> it = order.iterator();
+        while (it.hasNext()) {
+            int f = it.next();
+            if (evictable.test(f)) return f;
+        }
+        return -1;
+    }
+
+    @Override
+    public int coldFrames(int[] out, IntPredicate candidate) {
+        int n = 0;
+        for (int f : order) {
+            if (n == out.length) break;
+            if (candidate.test(f)) out[n++] = f;
+        }
+        return n;
+    }
+
+    @Override
+    public void reset() {
+        order.clear();
+        history.clear();
+    }
+
+    @Override
+    public void onResize(int frames) {
+        retained = Math.max(1, frames);
+        Iterator<Long> oldest = history.keySet().iterator();
+        while (history.size() > retained) {
+            oldest.next();
+            oldest.remove();
+        }
+    }
+}
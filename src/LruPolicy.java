@@ -0,0 +1,62 @@
+import java.util.function.IntPredicate;
+
+// LRU (or MRU when `mostRecent`): frames in access order, loads, hits and unpins
+// all count as accesses. The victim is the least (most) recently used unpinned frame.
+public class LruPolicy implements ReplacementPolicy {
+    private final FrameList order;
+    private final boolean mostRecent;
+
+    public LruPolicy(int frames, boolean mostRecent) {
+        this.order = new FrameList(frames);
+        this.mostRecent = mostRecent;
+    }
+
+    @Override
+    public void onLoad(int frame, PageId pid) {
+        order.addLast(frame);
+    }
+
+    @Override
+    public void onHit(int frame) {
+        order.moveToLast(frame);
+    }
+
+    @Override
+    public void onUnpin(int frame) {
+        order.moveToLast(frame);
+    }
+
+    @Override
+    public void onEvict(int frame, PageId pid) {
+        order.remove(frame);
+    }
+
+    @Override
+    public int selectVictim(PageId incoming, IntPredicate evictable) {
+        if (mostRecent) {
+            for (int f = order.last(); f >= 0; f = order.prev(f)) {
+                if (evictable.test(f)) return f;
+            }
+        } else {
+            for (int f = order.first(); f >= 0; f = order.next(f)) {
+                if (evictable.test(f)) return f;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public int coldFrames(int[] out, IntPredicate candidate) {
+        if (!mostRecent) return order.collect(out, 0, candidate);
+        int n = 0;
+        for (int f = order.last(); f >= 0 && n < out.length; f = order.prev(f)) {
+            if (candidate.test(f)) out[n++] = f;
+        }
+        return n;
+    }
+
+    @Override
+    public void reset() {
+        order.clear();
+    }
+}
@@ -0,0 +1,150 @@
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.function.IntFunction;
+
+// Maps each data file with FileChannel.map in chunks of dm_mmap_chunk_pages pages;
+// page reads and writes are memory copies on the mapped chunks. A mapping never reaches
+// past the file's length (the last chunk is mapped again when the file grows), so mapping
+// never grows the file and a truncate can cut it at once.
+public class MappedFileStorage implements PageStorage {
+    private final int pageSize;
+    private final int chunkPages;
+    private final IntFunction<Path> filePath;
+
+    private final FileChannel[] chans;
+    private final List<List<MappedByteBuffer>> chunks;  // per file, chunk k maps pages from k*chunkPages (null: not mapped)
+    private final BitSet[] dirtyChunks;                  // per file, chunks written since the last force
+    private final int[] pageCounts;                      // logical file length in pages
+
+    public MappedFileStorage(DBConfig cfg, IntFunction<Path> filePath) {
+        this.pageSize = cfg.getPagesize();
+        this.chunkPages = Math.max(1, cfg.getDm_mmap_chunk_pages());
+        this.filePath = filePath;
+        this.chans = new FileChannel[cfg.getDm_maxfilecount()];
+        this.chunks = new ArrayList<>();
+        for (int i = 0; i < cfg.getDm_maxfilecount(); i++) chunks.add(new ArrayList<>());
+        this.dirtyChunks = new BitSet[cfg.getDm_maxfilecount()];
+        this.pageCounts = new int[cfg.getDm_maxfilecount()];
+    }
+
+    @Override
+    public void readPage(int fileIdx, int pageIdx, ByteBuffer dst) throws IOException {
+        open(fileIdx);
+        if (pageIdx >= pageCounts[fileIdx])
+            throw new EOFException("Failed to read full page at PageId(fileIdx=" + fileIdx + ", pageIdx=" + pageIdx + ")");
+        dst.put(chunk(fileIdx, pageIdx).slice(offsetInChunk(pageIdx), pageSize));
+    }
+
+    @Override
+    public void writePage(int fileIdx, int pageIdx, ByteBuffer src) throws IOException {
+        open(fileIdx);
+        if (pageIdx >= pageCounts[fileIdx]) extend(fileIdx, pageIdx + 1);
+        chunk(fileIdx, pageIdx).put(offsetInChunk(pageIdx), src, src.position(), pageSize);
+        src.position(src.position() + pageSize);
+        synchronized (this) {
+            dirtyChunks[fileIdx].set(pageIdx / chunkPages);
+        }
+    }
+
+    @Override
+    public int pageCount(int fileIdx) throws IOException {
+        open(fileIdx);
+        return pageCounts[fileIdx];
+    }
+
+    @Override
+    public synchronized void extend(int fileIdx, int pageCount) throws IOException {
+        open(fileIdx);
+        if (pageCount <= pageCounts[fileIdx]) return;
+        // sparse growth: the OS zero-fills the new region
+        long need = ((long) pageCount) * pageSize;
+        if (chans[fileIdx].size() < need) chans[fileIdx].write(ByteBuffer.allocate(1), need - 1);
+        pageCounts[fileIdx] = pageCount;
+    }
+
+    // The mappings that reach past the new length are dropped before the file is cut (the
+    // chunk left partly inside is forced first, and mapped again, shorter, on its next use).
+    // A platform that refuses to cut a file while the dropped mappings are not yet unmapped
+    // by the GC keeps it at its old size until close().
+    @Override
+    public synchronized void truncate(int fileIdx, int pageCount) throws IOException {
+        open(fileIdx);
+        if (pageCount >= pageCounts[fileIdx]) return;
+        pageCounts[fileIdx] = pageCount;
+        List<MappedByteBuffer> mapped = chunks.get(fileIdx);
+        BitSet dirty = dirtyChunks[fileIdx];
+        int keepChunks = pageCount / chunkPages;
+        if (keepChunks < mapped.size() && mapped.get(keepChunks) != null && dirty.get(keepChunks)) {
+            mapped.get(keepChunks).force();
+        }
+        while (mapped.size() > keepChunks) mapped.remove(mapped.size() - 1);
+        dirty.clear(keepChunks, Math.max(keepChunks, dirty.length()));
+        try {
+            chans[fileIdx].truncate(((long) pageCount) * pageSize);
+        } catch (IOException e) {
+            // cut at close()
+        }
+    }
+
+    @Override
+    public synchronized void force(int fileIdx) throws IOException {
+        BitSet dirty = dirtyChunks[fileIdx];
+        if (dirty == null) return;
+        List<MappedByteBuffer> mapped = chunks.get(fileIdx);
+        for (int k = dirty.nextSetBit(0); k >= 0; k = dirty.nextSetBit(k + 1)) {
+            mapped.get(k).force();
+        }
+        dirty.clear();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        for (int f = 0; f < chans.length; f++) {
+            if (chans[f] == null) continue;
+            force(f);
+            chunks.get(f).clear();
+            // a truncate the platform refused earlier
+            chans[f].truncate(((long) pageCounts[f]) * pageSize);
+            chans[f].close();
+            chans[f] = null;
+            dirtyChunks[f] = null;
+        }
+    }
+
+    private synchronized void open(int fileIdx) throws IOException {
+        if (chans[fileIdx] != null) return;
+        chans[fileIdx] = FileChannel.open(filePath.apply(fileIdx),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        dirtyChunks[fileIdx] = new BitSet();
+        pageCounts[fileIdx] = (int) (chans[fileIdx].size() / pageSize);
+    }
+
+    // Chunk holding pageIdx (< pageCounts[fileIdx]), mapped lazily up to the end of the file at
+    // most; a chunk mapped before the file grew is mapped again, longer. The writes made through
+    // the old mapping are in the same page cache, forced with the new one.
+    private synchronized MappedByteBuffer chunk(int fileIdx, int pageIdx) throws IOException {
+        List<MappedByteBuffer> mapped = chunks.get(fileIdx);
+        int k = pageIdx / chunkPages;
+        while (mapped.size() <= k) mapped.add(null);
+        MappedByteBuffer chunk = mapped.get(k);
+        if (chunk == null || chunk.capacity() < offsetInChunk(pageIdx) + pageSize) {
+            long position = ((long) k) * chunkPages * pageSize;
+            int pages = Math.min(chunkPages, pageCounts[fileIdx] - k * chunkPages);
+            chunk = chans[fileIdx].map(FileChannel.MapMode.READ_WRITE, position, ((long) pages) * pageSize);
+            mapped.set(k, chunk);
+        }
+        return chunk;
+    }
+
+    private int offsetInChunk(int pageIdx) {
+        return (pageIdx % chunkPages) * pageSize;
+    }
+}
@@ -0,0 +1,57 @@
+import java.nio.ByteBuffer;
+import java.util.concurrent.locks.ReadWriteLock;
+
+/**
+ * Page épinglée par BufferManager.PinPage, à fermer dans un try-with-resources : close()
+ * fait le FreePage de la page sans la rechercher dans le pool, puisque le handle connaît
+ * sa case, et marque la case modifiée si markDirty() a été appelé.
+ *
+ * - La vue (getBuffer) est celle de la case, créée avec la case et partagée par tous ceux
+ *   qui épinglent la page : accès absolus seulement (getInt(offset)...), sans changer sa
+ *   position ni sa limite.
+ * - Un handle appartient au thread qui a épinglé la page ; un second close() ne fait rien.
+ */
+public final class PageHandle implements AutoCloseable {
+
+    private final BufferPool pool;
+    private final PageId pageId;
+    private final int frame;
+    private final ByteBuffer buffer;
+    private boolean dirty;
+    private boolean closed;
+
+    PageHandle(BufferPool pool, PageId pageId, int frame, ByteBuffer buffer) {
+        this.pool = pool;
+        this.pageId = pageId;
+        this.frame = frame;
+        this.buffer = buffer;
+    }
+
+    public PageId getPageId() {
+        return pageId;
+    }
+
+    // Vue sur la case (capacité pagesize, accès absolus), valable jusqu'au close().
+    public ByteBuffer getBuffer() {
+        if (closed)
+            throw new IllegalStateException("Page déjà libérée : " + pageId);
+        return buffer;
+    }
+
+    // La page a été modifiée : elle sera écrite sur disque avant d'être évincée.
+    public void markDirty() {
+        dirty = true;
+    }
+
+    // Voir BufferManager.getLatch.
+    public ReadWriteLock getLatch() {
+        return pool.getLatch(frame);
+    }
+
+    @Override
+    public void close() {
+        if (closed) return;
+        closed = true;
+        pool.unpin(frame, dirty);
+    }
+}
@@ -0,0 +1,47 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Raw page I/O used by DiskManager. DiskManager keeps the allocation logic
+ * (space map, sync mode); a PageStorage only moves pages in and out of the
+ * DataN.bin files. Selected with dm_storage in DBConfig.
+ */
+public interface PageStorage extends AutoCloseable {
+
+    // called by DiskManager.Init once the BinData directory exists, before any page I/O;
+    // rejects a configuration the storage cannot serve
+    default void open() throws IOException {
+    }
+
+    // reads page pageIdx of file fileIdx into dst (dst.remaining() == pagesize)
+    void readPage(int fileIdx, int pageIdx, ByteBuffer dst) throws IOException;
+
+    // writes src (src.remaining() == pagesize) as page pageIdx of file fileIdx
+    void writePage(int fileIdx, int pageIdx, ByteBuffer src) throws IOException;
+
+    // reads dsts.length consecutive pages starting at firstPage (one buffer per page)
+    default void readPages(int fileIdx, int firstPage, ByteBuffer[] dsts) throws IOException {
+        for (int i = 0; i < dsts.length; i++) readPage(fileIdx, firstPage + i, dsts[i]);
+    }
+
+    // writes srcs.length consecutive pages starting at firstPage (one buffer per page)
+    default void writePages(int fileIdx, int firstPage, ByteBuffer[] srcs) throws IOException {
+        for (int i = 0; i < srcs.length; i++) writePage(fileIdx, firstPage + i, srcs[i]);
+    }
+
+    // current length of the file, in pages
+    int pageCount(int fileIdx) throws IOException;
+
+    // grows the file with zero pages until it holds at least pageCount pages
+    void extend(int fileIdx, int pageCount) throws IOException;
+
+    // shrinks the file to pageCount pages; no-op if it is not longer
+    void truncate(int fileIdx, int pageCount) throws IOException;
+
+    // flushes the file to the device; no-op if the file is not open
+    void force(int fileIdx) throws IOException;
+
+    // forces and releases every open file
+    @Override
+    void close() throws IOException;
+}
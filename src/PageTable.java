@@ -0,0 +1,105 @@
+import java.util.Arrays;
+
+// Page table of the BufferManager: PageId -> frame index, open addressing with linear
+// probing on the key (fileIdx << 32 | pageIdx). Removal shifts the following entries
+// back instead of leaving tombstones, so lookups stay short however long the pool runs.
+// The table doubles when it gets more than half full. Not thread-safe: the BufferManager
+// splits its pages over several tables (stripes), each used under its own lock.
+public class PageTable {
+    private static final long EMPTY = -1L; // (fileIdx, pageIdx) are never both -1 for a real page
+
+    private long[] keys;
+    private int[] frames;
+    private int mask;
+    private int size;
+
+    // table sized for `capacity` entries at a load factor of at most 1/2 (it grows past that)
+    public PageTable(int capacity) {
+        int n = Integer.highestOneBit(Math.max(2, capacity) * 2 - 1) * 2;
+        keys = new long[n];
+        frames = new int[n];
+        mask = n - 1;
+        Arrays.fill(keys, EMPTY);
+    }
+
+    public static long key(PageId pid) {
+        return ((long) pid.getFileIdx() << 32) | (pid.getPageIdx() & 0xFFFFFFFFL);
+    }
+
+    // frame holding pid, or -1
+    public int get(PageId pid) {
+        long k = key(pid);
+        for (int i = slot(k); keys[i] != EMPTY; i = (i + 1) & mask) {
+            if (keys[i] == k) return frames[i];
+        }
+        return -1;
+    }
+
+    public void put(PageId pid, int frame) {
+        if ((size + 1) * 2 > keys.length) grow();
+        long k = key(pid);
+        int i = slot(k);
+        while (keys[i] != EMPTY && keys[i] != k) i = (i + 1) & mask;
+        if (keys[i] == EMPTY) size++;
+        keys[i] = k;
+        frames[i] = frame;
+    }
+
+    public void remove(PageId pid) {
+        long k = key(pid);
+        int i = slot(k);
+        while (keys[i] != k) {
+            if (keys[i] == EMPTY) return;
+            i = (i + 1) & mask;
+        }
+        // backward shift: move up every following entry whose home slot is not in (i, j]
+        int j = i;
+        while (true) {
+            j = (j + 1) & mask;
+            if (keys[j] == EMPTY) break;
+            int home = slot(keys[j]);
+            boolean between = (i <= j) ? (i < home && home <= j) : (i < home || home <= j);
+            if (!between) {
+                keys[i] = keys[j];
+                frames[i] = frames[j];
+                i = j;
+            }
+        }
+        keys[i] = EMPTY;
+        size--;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, EMPTY);
+        size = 0;
+    }
+
+    // Fibonacci hashing spreads consecutive pages
+    public static int hash(PageId pid) {
+        return (int) ((key(pid) * 0x9E3779B97F4A7C15L) >>> 32);
+    }
+
+    private int slot(long k) {
+        return (int) ((k * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldFrames = frames;
+        keys = new long[oldKeys.length * 2];
+        frames = new int[oldKeys.length * 2];
+        mask = keys.length - 1;
+        Arrays.fill(keys, EMPTY);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] == EMPTY) continue;
+            int j = slot(oldKeys[i]);
+            while (keys[j] != EMPTY) j = (j + 1) & mask;
+            keys[j] = oldKeys[i];
+            frames[j] = oldFrames[i];
+        }
+    }
+}
@@ -15,6 +15,15 @@ public class Relation {
     private BufferManager bufferManager;
     private DBConfig config;
 
+    // pages reserved by DiskManager.ReserveExtent but not yet used as data pages (free on disk
+    // until claimed, so a reservation left over by a crash is not leaked)
+    private PageId extentNext;
+    private int extentRemaining;
+    // last data page allocated, new pages are placed right after it (headerPageId after a reload)
+    private PageId lastAllocated;
+    // ring of frames used by the pages this relation reads during a bulk operation (null = shared pool)
+    private BufferRing ring;
+
     private final PageId DUMMY_PAGE_ID = new PageId(-1, -1);
     private final int PAGEID_SIZE = 8;
 
@@ -37,6 +46,19 @@ public class Relation {
         this.nbSlotsPerPage = 0;
     }
 
+    // pinned page, unpinned when the handle is closed (try-with-resources); the header page,
+    // read by every insert, never goes through the ring, which would recycle its frame
+    private PageHandle pin(PageId pageId) throws IOException {
+        boolean header = pageId.equals(headerPageId);
+        return bufferManager.PinPage(pageId, header ? null : ring, name, header);
+    }
+
+    // Bulk scan or import: data pages read from now on go through `ring` (see BufferRing),
+    // until setBufferRing(null).
+    public void setBufferRing(BufferRing ring) {
+        this.ring = ring;
+    }
+
     private PageId readPageIdFromBuffer(ByteBuffer buffer, int offset) {
         int fileIdx = buffer.getInt(offset);
         int pageIdx = buffer.getInt(offset + 4);
@@ -62,54 +84,46 @@ public class Relation {
     }
 
     public boolean isPageFull(PageId pageId) throws IOException {
-        byte[] content = bufferManager.GetPage(pageId);
-        ByteBuffer buffer = ByteBuffer.wrap(content);
-        int freeSlot = findFirstFreeSlot(buffer);
-        bufferManager.FreePage(pageId, false);
-        return freeSlot == -1;
+        try (PageHandle page = pin(pageId)) {
+            return findFirstFreeSlot(page.getBuffer()) == -1;
+        }
     }
 
     public boolean isPageEmpty(PageId pageId) throws IOException {
-        byte[] content = bufferManager.GetPage(pageId);
-        ByteBuffer buffer = ByteBuffer.wrap(content);
-        for (int i = 0; i < nbSlotsPerPage; i++) {
-            if (buffer.get(DP_OFFSET_BYTEMAP + i) != (byte) 0) {
-                bufferManager.FreePage(pageId, false);
-                return false;
+        try (PageHandle page = pin(pageId)) {
+            ByteBuffer buffer = page.getBuffer();
+            for (int i = 0; i < nbSlotsPerPage; i++) {
+                if (buffer.get(DP_OFFSET_BYTEMAP + i) != (byte) 0) {
+                    return false;
+                }
             }
+            return true;
         }
-        bufferManager.FreePage(pageId, false);
-        return true;
     }
 
     private void deleteRecordFromDataPage(RecordId rid) throws IOException {
-        ByteBuffer dataBuffer = ByteBuffer.wrap(bufferManager.GetPage(rid.getPageId()));
-        dataBuffer.put(DP_OFFSET_BYTEMAP + rid.getSlotIdx(), (byte) 0);
-        bufferManager.FreePage(rid.getPageId(), true);
+        try (PageHandle page = pin(rid.getPageId())) {
+            page.markDirty();
+            page.getBuffer().put(DP_OFFSET_BYTEMAP + rid.getSlotIdx(), (byte) 0);
+        }
     }
 
     private PageId getFirstFullPageId() throws IOException {
-        byte[] headerContent = bufferManager.GetPage(headerPageId);
-        ByteBuffer buffer = ByteBuffer.wrap(headerContent);
-        PageId pid = readPageIdFromBuffer(buffer, HP_OFFSET_FIRST_FULL);
-        bufferManager.FreePage(headerPageId, false);
-        return pid;
+        try (PageHandle page = pin(headerPageId)) {
+            return readPageIdFromBuffer(page.getBuffer(), HP_OFFSET_FIRST_FULL);
+        }
     }
 
     private PageId getFirstFreePageId() throws IOException {
-        byte[] headerContent = bufferManager.GetPage(headerPageId);
-        ByteBuffer buffer = ByteBuffer.wrap(headerContent);
-        PageId pid = readPageIdFromBuffer(buffer, HP_OFFSET_FIRST_FREE);
-        bufferManager.FreePage(headerPageId, false);
-        return pid;
+        try (PageHandle page = pin(headerPageId)) {
+            return readPageIdFromBuffer(page.getBuffer(), HP_OFFSET_FIRST_FREE);
+        }
     }
 
     private PageId getNextPageId(PageId pageId) throws IOException {
-        byte[] content = bufferManager.GetPage(pageId);
-        ByteBuffer buffer = ByteBuffer.wrap(content);
-        PageId pid = readPageIdFromBuffer(buffer, DP_OFFSET_NEXT);
-        bufferManager.FreePage(pageId, false);
-        return pid;
+        try (PageHandle page = pin(pageId)) {
+            return readPageIdFromBuffer(page.getBuffer(), DP_OFFSET_NEXT);
+        }
     }
 
     private PageId findPrevPageInList(PageId targetId, PageId headId) throws IOException {
@@ -127,45 +141,47 @@ public class Relation {
 
     private void unlinkPage(PageId pageId, PageId prevId, PageId nextId) throws IOException {
         if (prevId.equals(headerPageId)) {
-            byte[] headerContent = bufferManager.GetPage(headerPageId);
-            ByteBuffer headerBuffer = ByteBuffer.wrap(headerContent);
-            PageId currentFull = readPageIdFromBuffer(headerBuffer, HP_OFFSET_FIRST_FULL);
-            if (pageId.equals(currentFull)) {
-                writePageIdToBuffer(headerBuffer, HP_OFFSET_FIRST_FULL, nextId);
-            } else {
-                writePageIdToBuffer(headerBuffer, HP_OFFSET_FIRST_FREE, nextId);
+            try (PageHandle header = pin(headerPageId)) {
+                header.markDirty();
+                ByteBuffer headerBuffer = header.getBuffer();
+                PageId currentFull = readPageIdFromBuffer(headerBuffer, HP_OFFSET_FIRST_FULL);
+                if (pageId.equals(currentFull)) {
+                    writePageIdToBuffer(headerBuffer, HP_OFFSET_FIRST_FULL, nextId);
+                } else {
+                    writePageIdToBuffer(headerBuffer, HP_OFFSET_FIRST_FREE, nextId);
+                }
             }
-            bufferManager.FreePage(headerPageId, true);
         } else {
-            byte[] prevContent = bufferManager.GetPage(prevId);
-            ByteBuffer prevBuffer = ByteBuffer.wrap(prevContent);
-            writePageIdToBuffer(prevBuffer, DP_OFFSET_NEXT, nextId);
-            bufferManager.FreePage(prevId, true);
+            try (PageHandle prev = pin(prevId)) {
+                prev.markDirty();
+                writePageIdToBuffer(prev.getBuffer(), DP_OFFSET_NEXT, nextId);
+            }
         }
         if (!nextId.equals(DUMMY_PAGE_ID)) {
-            byte[] nextContent = bufferManager.GetPage(nextId);
-            ByteBuffer nextBuffer = ByteBuffer.wrap(nextContent);
-            writePageIdToBuffer(nextBuffer, DP_OFFSET_PREV, prevId);
-            bufferManager.FreePage(nextId, true);
+            try (PageHandle next = pin(nextId)) {
+                next.markDirty();
+                writePageIdToBuffer(next.getBuffer(), DP_OFFSET_PREV, prevId);
+            }
         }
     }
 
     private void movePageFromListToNewHead(PageId pageId, int headerOffset) throws IOException {
-        byte[] headerContent = bufferManager.GetPage(headerPageId);
-        ByteBuffer headerBuffer = ByteBuffer.wrap(headerContent);
-        PageId oldHeadId = readPageIdFromBuffer(headerBuffer, headerOffset);
-        writePageIdToBuffer(headerBuffer, headerOffset, pageId);
-        bufferManager.FreePage(headerPageId, true);
-        byte[] pageContent = bufferManager.GetPage(pageId);
-        ByteBuffer pageBuffer = ByteBuffer.wrap(pageContent);
-        writePageIdToBuffer(pageBuffer, DP_OFFSET_PREV, headerPageId);
-        writePageIdToBuffer(pageBuffer, DP_OFFSET_NEXT, oldHeadId);
-        bufferManager.FreePage(pageId, true);
+        PageId oldHeadId;
+        try (PageHandle header = pin(headerPageId)) {
+            header.markDirty();
+            oldHeadId = readPageIdFromBuffer(header.getBuffer(), headerOffset);
+            writePageIdToBuffer(header.getBuffer(), headerOffset, pageId);
+        }
+        try (PageHandle page = pin(pageId)) {
+            page.markDirty();
+            writePageIdToBuffer(page.getBuffer(), DP_OFFSET_PREV, headerPageId);
+            writePageIdToBuffer(page.getBuffer(), DP_OFFSET_NEXT, oldHeadId);
+        }
         if (!oldHeadId.equals(DUMMY_PAGE_ID)) {
-            byte[] oldHeadContent = bufferManager.GetPage(oldHeadId);
-            ByteBuffer oldHeadBuffer = ByteBuffer.wrap(oldHeadContent);
-            writePageIdToBuffer(oldHeadBuffer, DP_OFFSET_PREV, pageId);
-            bufferManager.FreePage(oldHeadId, true);
+            try (PageHandle oldHead = pin(oldHeadId)) {
+                oldHead.markDirty();
+                writePageIdToBuffer(oldHead.getBuffer(), DP_OFFSET_PREV, pageId);
+            }
         }
     }
 
@@ -201,6 +217,47 @@ public class Relation {
         return false;
     }
 
+    // Moves page `from` of this relation (header or data page) to the free page `to`,
+    // fixes the links that pointed to it and deallocates `from`. Used by COMPACT.
+    // `to` is overwritten entirely, so it is claimed in the pool without being read.
+    public void relocatePage(PageId from, PageId to) throws IOException {
+        try (PageHandle src = pin(from);
+             PageHandle dst = bufferManager.PinNewPage(to, name, from.equals(headerPageId))) {
+            dst.markDirty();
+            dst.getBuffer().put(0, src.getBuffer(), 0, src.getBuffer().capacity());
+        }
+
+        if (from.equals(headerPageId)) {
+            headerPageId = to;
+            for (PageId head : new PageId[] { getFirstFullPageId(), getFirstFreePageId() }) {
+                if (!head.equals(DUMMY_PAGE_ID)) replacePageId(head, DP_OFFSET_PREV, from, to);
+            }
+        } else {
+            PageId headId = isPageInList(from, getFirstFreePageId()) ? getFirstFreePageId() : getFirstFullPageId();
+            PageId prevId = findPrevPageInList(from, headId);
+            if (prevId.equals(headerPageId)) {
+                replacePageId(headerPageId, HP_OFFSET_FIRST_FULL, from, to);
+                replacePageId(headerPageId, HP_OFFSET_FIRST_FREE, from, to);
+            } else {
+                replacePageId(prevId, DP_OFFSET_NEXT, from, to);
+            }
+            PageId nextId = getNextPageId(to);
+            if (!nextId.equals(DUMMY_PAGE_ID)) replacePageId(nextId, DP_OFFSET_PREV, from, to);
+        }
+        if (from.equals(lastAllocated)) lastAllocated = to;
+        diskManager.DeallocPage(from);
+    }
+
+    // overwrites the PageId stored at offset in pageId if it is oldId
+    private void replacePageId(PageId pageId, int offset, PageId oldId, PageId newId) throws IOException {
+        try (PageHandle page = pin(pageId)) {
+            if (readPageIdFromBuffer(page.getBuffer(), offset).equals(oldId)) {
+                page.markDirty();
+                writePageIdToBuffer(page.getBuffer(), offset, newId);
+            }
+        }
+    }
+
     public String getName() { return name; }
     public List<String> getColumnNames() { return columnNames; }
     public List<String> getColumnTypes() { return columnTypes; }
@@ -257,51 +314,84 @@ public class Relation {
 
     public void initializeHeaderPage() throws IOException {
         if (diskManager != null && headerPageId == null) {
-            this.headerPageId = diskManager.AllocPage();
+            // with dm_spread_relations, each relation gets its own file when possible, its pages
+            // then stay together (otherwise no file is chosen: the first free page, as before)
+            this.headerPageId = diskManager.AllocPage(new PageId(diskManager.ChooseFileForRelation(), 1));
             calculateNbSlotsPerPage();
-            byte[] headerContent = bufferManager.GetPage(headerPageId);
-            ByteBuffer buffer = ByteBuffer.wrap(headerContent);
-            writePageIdToBuffer(buffer, HP_OFFSET_FIRST_FULL, DUMMY_PAGE_ID);
-            writePageIdToBuffer(buffer, HP_OFFSET_FIRST_FREE, DUMMY_PAGE_ID);
-            bufferManager.FreePage(headerPageId, true);
+            try (PageHandle header = pin(headerPageId)) {
+                header.markDirty();
+                writePageIdToBuffer(header.getBuffer(), HP_OFFSET_FIRST_FULL, DUMMY_PAGE_ID);
+                writePageIdToBuffer(header.getBuffer(), HP_OFFSET_FIRST_FREE, DUMMY_PAGE_ID);
+            }
         }
     }
 
-        public void addDataPage() throws IOException {
-        PageId newPid = diskManager.AllocPage();
-        byte[] content = bufferManager.GetPage(newPid);
-        ByteBuffer buffer = ByteBuffer.wrap(content);
+    // Next page of the relation's current extent, reserving a new extent when it is used up,
+    // so that consecutive data pages of a relation are contiguous on disk.
+    private PageId allocDataPage() throws IOException {
+        PageId near = (lastAllocated != null) ? lastAllocated : headerPageId;
+        int extentPages = (config != null) ? config.getDm_extent_pages() : 1;
+        if (extentPages <= 1) {
+            lastAllocated = diskManager.AllocPage(near);
+            return lastAllocated;
+        }
+        if (extentRemaining == 0) {
+            extentNext = diskManager.ReserveExtent(extentPages, near);
+            extentRemaining = extentPages;
+        }
+        PageId pid = extentNext;
+        diskManager.ClaimPage(pid);
+        lastAllocated = pid;
+        extentNext = new PageId(pid.getFileIdx(), pid.getPageIdx() + 1);
+        extentRemaining--;
+        return pid;
+    }
 
-        // --- FIX: Zero-initialize entire data page (important for persistence) ---
-        for (int i = 0; i < content.length; i++) {
-            buffer.put(i, (byte) 0);
+    // Gives the unused pages of the current extent back to the DiskManager.
+    public void releaseExtent() throws IOException {
+        while (extentRemaining > 0) {
+            diskManager.DeallocPage(extentNext);
+            extentNext = new PageId(extentNext.getFileIdx(), extentNext.getPageIdx() + 1);
+            extentRemaining--;
         }
+        extentNext = null;
+    }
+
+        public void addDataPage() throws IOException {
+        PageId newPid = allocDataPage();
+        try (PageHandle page = pin(newPid)) {
+            page.markDirty();
+            ByteBuffer buffer = page.getBuffer();
+
+            // --- FIX: Zero-initialize entire data page (important for persistence) ---
+            for (int i = 0; i < buffer.capacity(); i++) {
+                buffer.put(i, (byte) 0);
+            }
 
-        // --- Initialize metadata in the new data page ---
-        writePageIdToBuffer(buffer, DP_OFFSET_PREV, DUMMY_PAGE_ID);
-        writePageIdToBuffer(buffer, DP_OFFSET_NEXT, DUMMY_PAGE_ID);
+            // --- Initialize metadata in the new data page ---
+            writePageIdToBuffer(buffer, DP_OFFSET_PREV, DUMMY_PAGE_ID);
+            writePageIdToBuffer(buffer, DP_OFFSET_NEXT, DUMMY_PAGE_ID);
 
-        // --- Initialize BYTEMAP (mark all slots empty) ---
-        for (int i = 0; i < nbSlotsPerPage; i++) {
-            buffer.put(DP_OFFSET_BYTEMAP + i, (byte) 0);
+            // --- Initialize BYTEMAP (mark all slots empty) ---
+            for (int i = 0; i < nbSlotsPerPage; i++) {
+                buffer.put(DP_OFFSET_BYTEMAP + i, (byte) 0);
+            }
         }
 
-        bufferManager.FreePage(newPid, true);
-
         // --- Insert this new page at the head of FREE list ---
-        byte[] headerContent = bufferManager.GetPage(headerPageId);
-        ByteBuffer headerBuffer = ByteBuffer.wrap(headerContent);
-
-        PageId oldFirstFree = readPageIdFromBuffer(headerBuffer, HP_OFFSET_FIRST_FREE);
-        writePageIdToBuffer(headerBuffer, HP_OFFSET_FIRST_FREE, newPid);
-        bufferManager.FreePage(headerPageId, true);
+        PageId oldFirstFree;
+        try (PageHandle header = pin(headerPageId)) {
+            header.markDirty();
+            oldFirstFree = readPageIdFromBuffer(header.getBuffer(), HP_OFFSET_FIRST_FREE);
+            writePageIdToBuffer(header.getBuffer(), HP_OFFSET_FIRST_FREE, newPid);
+        }
 
         // --- Fix links between pages ---
         if (!oldFirstFree.equals(DUMMY_PAGE_ID)) {
-            byte[] oldContent = bufferManager.GetPage(oldFirstFree);
-            ByteBuffer oldBuffer = ByteBuffer.wrap(oldContent);
-            writePageIdToBuffer(oldBuffer, DP_OFFSET_PREV, newPid);
-            bufferManager.FreePage(oldFirstFree, true);
+            try (PageHandle oldFirst = pin(oldFirstFree)) {
+                oldFirst.markDirty();
+                writePageIdToBuffer(oldFirst.getBuffer(), DP_OFFSET_PREV, newPid);
+            }
         }
     }
 
@@ -321,24 +411,29 @@ public class Relation {
     }
 
     public RecordId writeRecordToDataPage(Record record, PageId pageId) throws IOException {
-        byte[] pageContent = bufferManager.GetPage(pageId);
-        ByteBuffer buffer = ByteBuffer.wrap(pageContent);
-        int slotIndex = findFirstFreeSlot(buffer);
-        if (slotIndex == -1) {
-            bufferManager.FreePage(pageId, false);
-            throw new RuntimeException("Page is full (pre-check failed).");
+        try (PageHandle page = pin(pageId)) {
+            ByteBuffer buffer = page.getBuffer();
+            int slotIndex = findFirstFreeSlot(buffer);
+            if (slotIndex == -1) {
+                throw new RuntimeException("Page is full (pre-check failed).");
+            }
+            page.markDirty();
+            int dataOffset = DP_OFFSET_BYTEMAP + nbSlotsPerPage + (slotIndex * recordSize);
+            writeRecordToBuffer(record, buffer, dataOffset);
+            buffer.put(DP_OFFSET_BYTEMAP + slotIndex, (byte) 1);
+            return new RecordId(pageId, slotIndex);
         }
-        int dataOffset = DP_OFFSET_BYTEMAP + nbSlotsPerPage + (slotIndex * recordSize);
-        writeRecordToBuffer(record, buffer, dataOffset);
-        buffer.put(DP_OFFSET_BYTEMAP + slotIndex, (byte) 1);
-        bufferManager.FreePage(pageId, true);
-        return new RecordId(pageId, slotIndex);
     }
 
     public ArrayList<Record> getRecordsInDataPage(PageId pageId) throws IOException {
         ArrayList<Record> records = new ArrayList<>();
-        byte[] content = bufferManager.GetPage(pageId);
-        ByteBuffer buffer = ByteBuffer.wrap(content);
+        try (PageHandle page = pin(pageId)) {
+            readRecords(page.getBuffer(), records);
+        }
+        return records;
+    }
+
+    private void readRecords(ByteBuffer buffer, ArrayList<Record> records) {
         for (int slotIndex = 0; slotIndex < nbSlotsPerPage; slotIndex++) {
             if (!isSlotFree(buffer, slotIndex)) {
                 Record record = new Record();
@@ -347,8 +442,6 @@ public class Relation {
                 records.add(record);
             }
         }
-        bufferManager.FreePage(pageId, false);
-        return records;
     }
 
     public ArrayList<PageId> getDataPages() throws IOException {
@@ -380,13 +473,41 @@ public class Relation {
 
     public ArrayList<Record> GetAllRecords() throws IOException {
         ArrayList<Record> allRecords = new ArrayList<>();
-        ArrayList<PageId> allPageIds = getDataPages();
-        for (PageId pageId : allPageIds) {
-            allRecords.addAll(getRecordsInDataPage(pageId));
-        }
+        scan((pid, buffer) -> readRecords(buffer, allRecords));
         return allRecords;
     }
 
+    // Full scan: one walk of the full then the free list, each data page pinned once for both
+    // its next pointer and its records. The first quarter of the pool's frames goes through the
+    // pool like any read, so a relation that fits stays cached from one scan to the next; the
+    // pages past that go through a ring, so a large scan does not push the hot pages out.
+    private void scan(PageVisitor visitor) throws IOException {
+        BufferRing previous = ring;
+        int cached = bufferManager.getBufferCount(name) / 4;
+        int visited = 0;
+        try {
+            for (PageId currentPageId : new PageId[] { getFirstFullPageId(), getFirstFreePageId() }) {
+                while (!currentPageId.equals(DUMMY_PAGE_ID)) {
+                    if (previous == null && visited++ == cached) ring = bufferManager.NewBufferRing(name);
+                    PageId pid = currentPageId;
+                    try (PageHandle page = pin(pid)) {
+                        currentPageId = readPageIdFromBuffer(page.getBuffer(), DP_OFFSET_NEXT);
+                        // the next page is only known now: read it while this one is processed
+                        if (bufferManager.getReadAhead() > 0 && !currentPageId.equals(DUMMY_PAGE_ID))
+                            bufferManager.Prefetch(name, ring, currentPageId);
+                        visitor.visit(pid, page.getBuffer());
+                    }
+                }
+            }
+        } finally {
+            ring = previous;
+        }
+    }
+
+    private interface PageVisitor {
+        void visit(PageId pageId, ByteBuffer buffer) throws IOException;
+    }
+
     public void DeleteRecord(RecordId rid) throws IOException {
         PageId pageId = rid.getPageId();
         boolean wasFull = isPageFull(pageId);
@@ -399,17 +520,20 @@ public class Relation {
     }
 
 // Updated to handle VARCHAR correctly
+    // Absolute accesses only: `bb` may be the shared view of a buffer pool frame (PageHandle).
     public void writeRecordToBuffer(Record rec, ByteBuffer bb, int offset) {
-        bb.position(offset);
+        int pos = offset;
         for (int i = 0; i < columnTypes.size(); i++) {
             String type = columnTypes.get(i).toLowerCase();
             String value = rec.getValues().get(i);
             
             if (type.equals("int")) {
-                bb.putInt(Integer.parseInt(value));
+                bb.putInt(pos, Integer.parseInt(value));
+                pos += 4;
             } 
             else if (type.equals("float") || type.equals("real")) {
-                bb.putFloat(Float.parseFloat(value));
+                bb.putFloat(pos, Float.parseFloat(value));
+                pos += 4;
             } 
             else if (type.startsWith("varchar") || type.equals("string")) {
                 // Calculate size dynamically based on type (e.g. varchar(3) -> 3 bytes)
@@ -418,29 +542,33 @@ public class Relation {
                 byte[] valBytes = value.getBytes();
                 // Copy value into fixed-size buffer (padding with 0 if necessary)
                 System.arraycopy(valBytes, 0, strBytes, 0, Math.min(maxLen, valBytes.length));
-                bb.put(strBytes);
+                bb.put(pos, strBytes);
+                pos += maxLen;
             }
         }
     }
 
     // Updated to handle VARCHAR correctly
     public void readFromBuffer(Record rec, ByteBuffer bb, int offset) {
-        bb.position(offset);
+        int pos = offset;
         rec.getValues().clear();
         for (int i = 0; i < columnTypes.size(); i++) {
             String type = columnTypes.get(i).toLowerCase();
             
             if (type.equals("int")) {
-                rec.addValue(String.valueOf(bb.getInt()));
+                rec.addValue(String.valueOf(bb.getInt(pos)));
+                pos += 4;
             } 
             else if (type.equals("float") || type.equals("real")) {
-                rec.addValue(String.valueOf(bb.getFloat()));
+                rec.addValue(String.valueOf(bb.getFloat(pos)));
+                pos += 4;
             } 
             else if (type.startsWith("varchar") || type.equals("string")) {
                 // Use getTypeSize to know exactly how many bytes to read
                 int len = getTypeSize(type);
                 byte[] strBytes = new byte[len];
-                bb.get(strBytes);
+                bb.get(pos, strBytes);
+                pos += len;
                 // Convert to string and trim null bytes/spaces
                 rec.addValue(new String(strBytes).trim());
             }
@@ -449,51 +577,41 @@ public class Relation {
 
     // Retrieves a specific record using its RecordId
     public Record getRecord(RecordId rid) throws IOException {
-        byte[] content = bufferManager.GetPage(rid.getPageId());
-        ByteBuffer buffer = ByteBuffer.wrap(content);
-        
-        // Safety check
-        if (isSlotFree(buffer, rid.getSlotIdx())) {
-            bufferManager.FreePage(rid.getPageId(), false);
-            return null;
-        }
+        try (PageHandle page = pin(rid.getPageId())) {
+            ByteBuffer buffer = page.getBuffer();
 
-        Record rec = new Record();
-        int dataOffset = DP_OFFSET_BYTEMAP + nbSlotsPerPage + (rid.getSlotIdx() * recordSize);
-        readFromBuffer(rec, buffer, dataOffset);
-        
-        bufferManager.FreePage(rid.getPageId(), false);
-        return rec;
+            // Safety check
+            if (isSlotFree(buffer, rid.getSlotIdx())) {
+                return null;
+            }
+
+            Record rec = new Record();
+            int dataOffset = DP_OFFSET_BYTEMAP + nbSlotsPerPage + (rid.getSlotIdx() * recordSize);
+            readFromBuffer(rec, buffer, dataOffset);
+            return rec;
+        }
     }
 
     // Overwrites a record at a specific slot with new data
     public void updateRecord(RecordId rid, Record newRec) throws IOException {
-        byte[] content = bufferManager.GetPage(rid.getPageId());
-        ByteBuffer buffer = ByteBuffer.wrap(content);
-        
-        int dataOffset = DP_OFFSET_BYTEMAP + nbSlotsPerPage + (rid.getSlotIdx() * recordSize);
-        writeRecordToBuffer(newRec, buffer, dataOffset);
-        
-        // Mark page as dirty (true) so it saves to disk later
-        bufferManager.FreePage(rid.getPageId(), true);
+        try (PageHandle page = pin(rid.getPageId())) {
+            // Mark page as dirty so it saves to disk later
+            page.markDirty();
+            int dataOffset = DP_OFFSET_BYTEMAP + nbSlotsPerPage + (rid.getSlotIdx() * recordSize);
+            writeRecordToBuffer(newRec, page.getBuffer(), dataOffset);
+        }
     }
 
     // Returns a list of ALL RecordIds in the relation
     public ArrayList<RecordId> getAllRecordIds() throws IOException {
         ArrayList<RecordId> rids = new ArrayList<>();
-        ArrayList<PageId> pages = getDataPages();
-        
-        for (PageId pid : pages) {
-            byte[] content = bufferManager.GetPage(pid);
-            ByteBuffer buffer = ByteBuffer.wrap(content);
-            
+        scan((pid, buffer) -> {
             for (int i = 0; i < nbSlotsPerPage; i++) {
                 if (!isSlotFree(buffer, i)) {
                     rids.add(new RecordId(pid, i));
                 }
             }
-            bufferManager.FreePage(pid, false);
-        }
+        });
         return rids;
     }
-}
\ No newline at end of file
+}
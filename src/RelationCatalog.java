@@ -1,5 +1,4 @@
 import java.io.IOException;
-import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -53,13 +52,13 @@ public class RelationCatalog {
             // Scan the first 10 pages (simplified)
             for (int pageIdx = 1; pageIdx < 10; pageIdx++) {
                 PageId pid = new PageId(0, pageIdx);
-                byte[] page = bufferManager.GetPage(pid);
-                ByteBuffer bb = ByteBuffer.wrap(page);
-
-                // Read one relation name (20 bytes max)
-                byte[] bytes = new byte[20];
-                bb.get(bytes);
-                String name = new String(bytes).trim();
+                String name;
+                try (PageHandle page = bufferManager.PinPage(pid)) {
+                    // Read one relation name (20 bytes max)
+                    byte[] bytes = new byte[20];
+                    page.getBuffer().get(0, bytes);
+                    name = new String(bytes).trim();
+                }
 
                 if (!name.isEmpty()) {
                     // Only add if not already in memory
@@ -69,8 +68,6 @@ public class RelationCatalog {
                         System.out.println("✅ Loaded relation: " + name);
                     }
                 }
-
-                bufferManager.FreePage(pid, false);
             }
         } catch (Exception e) {
             
@@ -0,0 +1,63 @@
+import java.util.List;
+import java.util.function.IntPredicate;
+
+/**
+ * Replacement strategy of the BufferManager (bm_policy / BMSETTINGS).
+ * The BufferManager owns the frames; a policy only sees frame indexes and the
+ * PageId they hold, and is told about every load and eviction. Every hit and unpin reaches
+ * it before its next selectVictim or coldFrames (in order for one thread), unless
+ * concurrentAccesses() lets the pool pass them at once.
+ */
+public interface ReplacementPolicy {
+
+    List<String> NAMES = List.of("LRU", "MRU", "CLOCK", "2Q", "LRU2", "ARC");
+
+    // pid was just read into the empty frame `frame`
+    void onLoad(int frame, PageId pid);
+
+    // GetPage found the page already in `frame`
+    void onHit(int frame);
+
+    // FreePage on `frame`
+    void onUnpin(int frame);
+
+    // true if onHit and onUnpin may run without the pool's policy lock, concurrently with
+    // each other and with the other methods; otherwise the pool buffers these accesses and
+    // replays them under the lock before the policy is next asked for a victim
+    default boolean concurrentAccesses() {
+        return false;
+    }
+
+    // frame `frame`, holding pid, is being emptied (victim or flush)
+    void onEvict(int frame, PageId pid);
+
+    // frame to empty to make room for `incoming`, among the frames accepted by
+    // `evictable` (the unpinned ones), or -1 if there is none
+    int selectVictim(PageId incoming, IntPredicate evictable);
+
+    // fills `out` with up to out.length frames accepted by `candidate`, in the order
+    // selectVictim would take them, and returns their number; changes no state
+    // (the background writer cleans these frames ahead of their eviction)
+    int coldFrames(int[] out, IntPredicate candidate);
+
+    // forgets everything: every frame is empty
+    void reset();
+
+    // the pool now uses `frames` frames (BMSETTINGS SIZE); the policy was created for the
+    // pool's maximum size, this only retunes the targets that depend on the pool size
+    default void onResize(int frames) {
+    }
+
+    static ReplacementPolicy create(String name, int frames) {
+        return switch (name.toUpperCase()) {
+            case "LRU" -> new LruPolicy(frames, false);
+            case "MRU" -> new LruPolicy(frames, true);
+            case "CLOCK" -> new ClockPolicy(frames);
+            case "2Q" -> new TwoQueuePolicy(frames);
+            case "LRU2", "LRU-2" -> new LruKPolicy(frames);
+            case "ARC" -> new ArcPolicy(frames);
+            default -> throw new IllegalArgumentException("Politique de remplacement inconnue: " + name
+                    + " (valeurs possibles: " + String.join(", ", NAMES) + ")");
+        };
+    }
+}
@@ -1,7 +1,11 @@
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Scanner;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 
 /**
  * Classe principale du SGBD - Point d'entrée de l'application
@@ -32,10 +36,30 @@ public class SGBD {
         
         // Charger l'état de la base de données si existant
         dbManager.LoadState();
+
+        registerBufferPoolMBean();
         
         System.out.println("SGBD initialisé avec succès");
     }
     
+    // Compteurs des buffer pools visibles par JMX (jconsole...) ; facultatif, un échec n'empêche pas de démarrer.
+    private void registerBufferPoolMBean() {
+        for (BufferPool pool : bufferManager.getPools()) registerBufferPoolMBean(pool);
+    }
+
+    // sgbd:type=BufferPool pour le pool "default", sgbd:type=BufferPool,name=<pool> pour les autres
+    private void registerBufferPoolMBean(BufferPool pool) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName("sgbd:type=BufferPool"
+                    + (pool.getName().equals(BufferManager.DEFAULT_POOL) ? "" : ",name=" + ObjectName.quote(pool.getName())));
+            if (server.isRegistered(name)) server.unregisterMBean(name);
+            server.registerMBean(pool.getStats(), name);
+        } catch (Exception e) {
+            System.err.println("Statistiques JMX indisponibles : " + e.getMessage());
+        }
+    }
+
     // === Méthode principale d'exécution ===
     public void Run() {
         Scanner scanner = new Scanner(System.in);
@@ -90,9 +114,12 @@ public class SGBD {
             case "LIST" -> ProcessListCommand(tokens);
             case "BMSETTINGS" -> ProcessBmSettingsCommand(tokens);
             case "BMSTATE" -> ProcessBmStateCommand(tokens);
+            case "BMSTATS" -> ProcessBmStatsCommand(tokens);
+            case "BMPOOL" -> ProcessBmPoolCommand(tokens);
             case "IMPORT" -> ProcessImportCommand(tokens);
             case "APPEND" -> ProcessAppendCommand(tokens);
             case "UPDATE" -> ProcessUpdateCommand(tokens);
+            case "COMPACT" -> ProcessCompactCommand(tokens);
             default -> System.err.println("Commande inconnue: " + mainCommand);
         }
     }
@@ -102,8 +129,16 @@ public class SGBD {
         try {
             System.out.println("Sauvegarde en cours...");
             
-            // Flush des buffers
-            bufferManager.FlushBuffers();
+            // Rendre au DiskManager les pages d'extents réservées mais inutilisées
+            for (Relation relation : dbManager.getAllRelations()) {
+                relation.releaseExtent();
+            }
+            
+            // Arrêt de l'écrivain de fond et flush des buffers
+            bufferManager.Finish();
+            
+            // Écriture des bitmaps d'allocation et fermeture des fichiers
+            diskManager.Finish();
             
             // Sauvegarde de l'état de la base
             dbManager.SaveState();
@@ -192,6 +227,7 @@ public class SGBD {
             }
             
             // Désallouer toutes les pages de la relation
+            relation.releaseExtent();
             if (relation.getHeaderPageId() != null) {
                 // Désallouer la header page
                 diskManager.DeallocPage(relation.getHeaderPageId());
@@ -219,6 +255,7 @@ public class SGBD {
             // Supprimer toutes les tables
             for (String tableName : new ArrayList<>(dbManager.getAllTableNames())) {
                 Relation relation = dbManager.getTable(tableName);
+                if (relation != null) relation.releaseExtent();
                 
                 if (relation != null && relation.getHeaderPageId() != null) {
                     // Désallouer la header page
@@ -567,29 +604,76 @@ public class SGBD {
         }
     }
     
-    // === BMSETTINGS policy ===
+    // === BMSETTINGS policy [pool] | BMSETTINGS SIZE n [pool] ===
     public void ProcessBmSettingsCommand(String[] tokens) {
         try {
             if (tokens.length < 2) {
-                System.err.println("Syntaxe: BMSETTINGS <LRU|MRU>");
+                System.err.println("Syntaxe: BMSETTINGS <" + String.join("|", ReplacementPolicy.NAMES) + "> [pool]"
+                        + " | BMSETTINGS SIZE <n> [pool]");
+                return;
+            }
+
+            if (tokens[1].equalsIgnoreCase("SIZE")) {
+                ProcessBmSizeCommand(tokens);
                 return;
             }
             
             String policy = tokens[1].toUpperCase();
             
-            if (!policy.equals("LRU") && !policy.equals("MRU")) {
-                System.err.println("Politique invalide. Utilisez LRU ou MRU");
+            if (!ReplacementPolicy.NAMES.contains(policy)) {
+                System.err.println("Politique invalide. Utilisez " + String.join(", ", ReplacementPolicy.NAMES));
                 return;
             }
             
-            bufferManager.SetCurrentReplacementPolicy(policy);
-            System.out.println("Politique de remplacement changée vers: " + policy);
+            if (tokens.length > 2) {
+                bufferManager.getPool(tokens[2]).SetCurrentReplacementPolicy(policy);
+                System.out.println("Politique de remplacement du pool " + tokens[2] + " changée vers: " + policy);
+            } else {
+                bufferManager.SetCurrentReplacementPolicy(policy);
+                System.out.println("Politique de remplacement changée vers: " + policy);
+            }
             
         } catch (Exception e) {
             System.err.println("Erreur lors du changement de politique: " + e.getMessage());
         }
     }
+
+    private void ProcessBmSizeCommand(String[] tokens) {
+        int n;
+        try {
+            n = Integer.parseInt(tokens.length == 3 || tokens.length == 4 ? tokens[2] : "");
+        } catch (NumberFormatException e) {
+            System.err.println("Syntaxe: BMSETTINGS SIZE <n> [pool]");
+            return;
+        }
+        try {
+            String pool = (tokens.length == 4) ? tokens[3] : null;
+            BufferPool target = bufferManager.getPool(pool == null ? BufferManager.DEFAULT_POOL : pool);
+            if (n > target.getCapacity()) {
+                System.err.println("Taille trop grande pour le pool " + target.getName() + " : " + n + " cases, au plus "
+                        + target.getCapacity() + (pool == null ? " (bm_max_buffercount)" : " (taille maximale donnée à sa création)"));
+                return;
+            }
+            int remaining = (pool == null) ? bufferManager.Resize(n) : target.Resize(n);
+            System.out.println("Taille du buffer pool " + (pool == null ? "" : pool + " ") + "changée vers: " + n + " cases"
+                    + (remaining > 0 ? " (" + remaining + " case(s) épinglée(s) retirée(s) à leur libération)" : ""));
+        } catch (Exception e) {
+            System.err.println("Erreur lors du changement de taille du buffer pool: " + e.getMessage());
+        }
+    }
     
+    // === COMPACT : regroupe les pages en début de fichier et tronque les fichiers ===
+    public void ProcessCompactCommand(String[] tokens) {
+        try {
+            int released = dbManager.Compact();
+            // les pages d'en-tête ont pu être déplacées
+            dbManager.SaveState();
+            System.out.println("Compactage terminé : " + released + " page(s) libérée(s)");
+        } catch (Exception e) {
+            System.err.println("Erreur lors du compactage: " + e.getMessage());
+        }
+    }
+
     // === BMSTATE ===
     public void ProcessBmStateCommand(String[] tokens) {
         try {
@@ -599,6 +683,68 @@ public class SGBD {
         }
     }
 
+    // === BMPOOL [LIST] | BMPOOL CREATE nom cases [politique] [max] | BMPOOL ASSIGN cible nom ===
+    public void ProcessBmPoolCommand(String[] tokens) {
+        String action = (tokens.length > 1) ? tokens[1].toUpperCase() : "LIST";
+        try {
+            switch (action) {
+                case "LIST" -> {
+                    for (BufferPool pool : bufferManager.getPools()) {
+                        System.out.println(pool.getName() + " : " + pool.getBufferCount() + " cases (au plus "
+                                + pool.getCapacity() + "), politique "
+                                + pool.getCurrentReplacementPolicy() + ", " + pool.getResidentCount() + " pages présentes");
+                    }
+                    for (Map.Entry<String, String> e : bufferManager.getAssignments().entrySet()) {
+                        System.out.println("  " + e.getKey() + " -> " + e.getValue());
+                    }
+                }
+                case "CREATE" -> {
+                    if (tokens.length < 4 || tokens.length > 6) {
+                        System.err.println("Syntaxe: BMPOOL CREATE <nom> <cases> [politique] [max]");
+                        return;
+                    }
+                    // politique et taille maximale facultatives, dans cet ordre
+                    String policy = config.getBm_policy();
+                    int max = 0;
+                    for (int i = 4; i < tokens.length; i++) {
+                        if (tokens[i].chars().allMatch(Character::isDigit)) max = Integer.parseInt(tokens[i]);
+                        else policy = tokens[i];
+                    }
+                    BufferPool pool = bufferManager.CreatePool(tokens[2], Integer.parseInt(tokens[3]), max, policy);
+                    registerBufferPoolMBean(pool);
+                    System.out.println("Pool " + pool.getName() + " créé : " + pool.getBufferCount()
+                            + " cases (au plus " + pool.getCapacity() + "), politique " + pool.getCurrentReplacementPolicy());
+                }
+                case "ASSIGN" -> {
+                    if (tokens.length != 4) {
+                        System.err.println("Syntaxe: BMPOOL ASSIGN <relation|" + BufferManager.HEADERS + "|"
+                                + BufferManager.CATALOG + "> <nom>");
+                        return;
+                    }
+                    bufferManager.AssignPool(tokens[2], tokens[3]);
+                    System.out.println(tokens[2] + " affecté au pool " + tokens[3]);
+                }
+                default -> System.err.println("Syntaxe: BMPOOL [LIST] | BMPOOL CREATE <nom> <cases> [politique] [max]"
+                        + " | BMPOOL ASSIGN <cible> <nom>");
+            }
+        } catch (Exception e) {
+            System.err.println("Erreur lors de la gestion des pools: " + e.getMessage());
+        }
+    }
+
+    // === BMSTATS [RESET] ===
+    public void ProcessBmStatsCommand(String[] tokens) {
+        try {
+            bufferManager.printStats();
+            if (tokens.length > 1 && tokens[1].equalsIgnoreCase("RESET")) {
+                for (BufferPool pool : bufferManager.getPools()) pool.getStats().resetCounters();
+                System.out.println("Compteurs remis à zéro");
+            }
+        } catch (Exception e) {
+            System.err.println("Erreur lors de l'affichage des statistiques du buffer: " + e.getMessage());
+        }
+    }
+
     public void ProcessImportCommand(String[] tokens) {
         try {
             if (tokens.length < 4 || !tokens[1].equalsIgnoreCase("INTO")) {
@@ -615,6 +761,8 @@ public class SGBD {
                 return;
             }
 
+            // l'import passe par un anneau de cases : il n'évince pas les pages du pool
+            relation.setBufferRing(bufferManager.NewBufferRing(relation.getName()));
             try (java.io.BufferedReader br = new java.io.BufferedReader(new java.io.FileReader(fileName))) {
                 String line;
                 int count = 0;
@@ -636,6 +784,8 @@ public class SGBD {
                 System.out.println("Importation terminée : " + count + " enregistrements ajoutés.");
             } catch (java.io.IOException e) {
                 System.err.println("Erreur de lecture du fichier : " + e.getMessage());
+            } finally {
+                relation.setBufferRing(null);
             }
 
         } catch (Exception e) {
@@ -670,6 +820,7 @@ public class SGBD {
                 return;
             }
 
+            relation.setBufferRing(bufferManager.NewBufferRing(relation.getName()));
             try (java.io.BufferedReader br = new java.io.BufferedReader(new java.io.FileReader(filename))) {
                 String line;
                 int count = 0;
@@ -692,6 +843,8 @@ public class SGBD {
                 // System.out.println("Importation terminée : " + count + " enregistrements.");
             } catch (java.io.IOException e) {
                 System.err.println("Erreur lecture fichier: " + e.getMessage());
+            } finally {
+                relation.setBufferRing(null);
             }
 
         } catch (Exception e) {
@@ -0,0 +1,54 @@
+import java.util.Arrays;
+
+// Lecture anticipée d'un BufferPool (bm_readahead) : trois accès de suite à des pages
+// consécutives d'un même fichier (défauts de page, ou premier accès à une page lue d'avance),
+// dans un sens ou dans l'autre, forment un parcours séquentiel : les `window` pages suivantes
+// dans ce sens sont lues d'avance (BufferPool.Prefetch).
+final class SequentialReadAhead {
+    private final BufferPool pool;
+    private final int configured;              // bm_readahead
+    private volatile int window;               // pages lues d'avance (0 = désactivée)
+    private long lastAccess = Long.MIN_VALUE;  // PageTable.key du dernier accès suivi (verrou : this)
+    private int direction;                     // +1 / -1 : sens du parcours en cours, 0 : aucun
+
+    SequentialReadAhead(BufferPool pool, int configured, int frames) {
+        this.pool = pool;
+        this.configured = configured;
+        resize(frames);
+    }
+
+    int window() {
+        return window;
+    }
+
+    // la lecture anticipée ne prend jamais plus du quart du pool
+    void resize(int frames) {
+        window = Math.max(0, Math.min(configured, frames / 4));
+    }
+
+    // pid vient d'être lue par un défaut de page, ou demandée pour la première fois après sa lecture anticipée
+    void accessed(PageId pid, BufferRing ring) {
+        int w = window;
+        if (w == 0) return;
+        long key = PageTable.key(pid);
+        int step;
+        synchronized (this) {
+            step = (key == lastAccess + 1) ? 1 : (key == lastAccess - 1) ? -1 : 0;
+            if (step != direction) {
+                // premier pas (ou changement de sens) : on attend de voir le suivant
+                direction = step;
+                step = 0;
+            }
+            lastAccess = key;
+        }
+        if (step == 0) return;
+        PageId[] next = new PageId[w];
+        int n = 0;
+        for (int k = 1; k <= w; k++) {
+            int pageIdx = pid.getPageIdx() + k * step;
+            if (pageIdx < 1) break;
+            next[n++] = new PageId(pid.getFileIdx(), pageIdx);
+        }
+        pool.Prefetch(ring, Arrays.copyOf(next, n));
+    }
+}
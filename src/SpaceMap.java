@@ -0,0 +1,215 @@
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.BitSet;
+
+// In-memory free/used map of one data file, kept by DiskManager.
+//
+// The file is split in groups of 1 + pagesize*8 pages: the first page of group g
+// (page g*(pagesize*8 + 1)) is a bitmap page whose bit k tracks the k-th page after it.
+// Group 0 is the historical layout (page 0 = meta page, bit k = page k+1).
+// A summary bitset marks the full groups, so finding a free page does not scan them.
+// Reserved pages (reserveRange) are used in memory but stored as free until claimed,
+// so a reservation that was never used does not outlive the process.
+public class SpaceMap {
+    private final int groupBits;      // pages tracked by one bitmap page
+    private final int maxPages;       // page indexes must stay below this
+
+    private final BitSet used = new BitSet();   // bit i = page i used (bitmap pages always set)
+    private final BitSet reserved = new BitSet(); // used, but stored as free (not claimed yet)
+    private final BitSet fullGroups = new BitSet();
+    private final BitSet dirtyGroups = new BitSet();
+    private int[] usedInGroup = new int[1];
+    private int groupCount;           // groups whose bitmap page exists
+    private int firstFreeHint = 1;    // no free page below this index
+
+    public SpaceMap(int pageSize, int maxPages) {
+        this.groupBits = pageSize * 8;
+        this.maxPages = maxPages;
+        addGroup(); // group 0 always exists
+        dirtyGroups.clear();
+    }
+
+    public int getGroupCount() {
+        return groupCount;
+    }
+
+    public int groupSize() {
+        return groupBits;
+    }
+
+    public int bitmapPageOf(int group) {
+        return group * (groupBits + 1);
+    }
+
+    public boolean isBitmapPage(int pageIdx) {
+        return pageIdx % (groupBits + 1) == 0;
+    }
+
+    public boolean isUsed(int pageIdx) {
+        return used.get(pageIdx);
+    }
+
+    // highest used data page, or 0 when the file only holds bitmap pages
+    public int lastUsedPage() {
+        for (int i = used.length() - 1; i > 0; i = used.previousSetBit(i - 1)) {
+            if (!isBitmapPage(i)) return i;
+        }
+        return 0;
+    }
+
+    // data pages in use
+    public int usedCount() {
+        int n = 0;
+        for (int g = 0; g < groupCount; g++) n += usedInGroup[g];
+        return n;
+    }
+
+    public BitSet dirtyGroups() {
+        return dirtyGroups;
+    }
+
+    // ----------- load / store of a group's bitmap page -----------
+    public void loadGroup(int group, ByteBuffer bitmap) {
+        while (groupCount <= group) addGroup();
+        int base = bitmapPageOf(group) + 1;
+        int count = 0;
+        for (int byteIdx = 0; byteIdx < groupBits / 8; byteIdx++) {
+            int b = bitmap.get(byteIdx) & 0xFF;
+            if (b == 0) continue;
+            for (int bit = 0; bit < 8; bit++) {
+                if ((b & (1 << bit)) != 0) {
+                    used.set(base + byteIdx * 8 + bit);
+                    count++;
+                }
+            }
+        }
+        usedInGroup[group] = count;
+        fullGroups.set(group, count == groupBits);
+        dirtyGroups.clear(group);
+    }
+
+    public byte[] storeGroup(int group) {
+        byte[] bitmap = new byte[groupBits / 8];
+        int base = bitmapPageOf(group) + 1;
+        for (int i = used.nextSetBit(base); i >= 0 && i < base + groupBits; i = used.nextSetBit(i + 1)) {
+            if (reserved.get(i)) continue;
+            int k = i - base;
+            bitmap[k / 8] |= (byte) (1 << (k % 8));
+        }
+        dirtyGroups.clear(group);
+        return bitmap;
+    }
+
+    // ----------- allocation -----------
+    // first free page (adding a group when all existing ones are full), or -1 if the file is full
+    public int findFree() {
+        int g = fullGroups.nextClearBit(groupOf(firstFreeHint));
+        if (g >= groupCount) {
+            if (!canAddGroup()) return -1;
+            addGroup();
+            g = groupCount - 1;
+        }
+        int candidate = used.nextClearBit(Math.max(firstFreeHint, bitmapPageOf(g) + 1));
+        if (candidate >= maxPages) return -1;
+        firstFreeHint = candidate;
+        return candidate;
+    }
+
+    // first free page at or after `near` in the existing groups, else the first free page
+    public int findFreeNear(int near) {
+        int candidate = used.nextClearBit(Math.max(near, firstFreeHint));
+        if (candidate < maxPages && groupOf(candidate) < groupCount) return candidate;
+        return findFree();
+    }
+
+    // first free page below `limit` (a used page), or -1
+    public int findFreeBelow(int limit) {
+        int candidate = used.nextClearBit(firstFreeHint);
+        return candidate < limit ? candidate : -1;
+    }
+
+    // first page of `pages` contiguous free pages (runs never cross a bitmap page), or -1
+    public int findFreeRun(int pages) {
+        return findFreeRun(firstFreeHint, pages);
+    }
+
+    // same, starting the search at page `from` (new groups are added past the last one)
+    public int findFreeRun(int from, int pages) {
+        from = Math.max(from, firstFreeHint);
+        while (true) {
+            int start = used.nextClearBit(from);
+            if ((long) start + pages > maxPages) return -1;
+            if (groupOf(start) >= groupCount) {
+                if (!canAddGroup()) return -1;
+                addGroup();
+                continue;
+            }
+            int nextUsed = used.nextSetBit(start);
+            if (nextUsed < 0 || nextUsed - start >= pages) return start;
+            from = nextUsed;
+        }
+    }
+
+    public void set(int pageIdx, boolean isUsed) {
+        if (isBitmapPage(pageIdx))
+            throw new IllegalArgumentException("cannot mark bitmap page " + pageIdx);
+        if (used.get(pageIdx) == isUsed) return;
+        if (!isUsed) reserved.clear(pageIdx);
+        int g = groupOf(pageIdx);
+        while (groupCount <= g) addGroup();
+        used.set(pageIdx, isUsed);
+        usedInGroup[g] += isUsed ? 1 : -1;
+        fullGroups.set(g, usedInGroup[g] == groupBits);
+        dirtyGroups.set(g);
+        if (!isUsed && pageIdx < firstFreeHint) firstFreeHint = pageIdx;
+    }
+
+    public void setRange(int from, int to, boolean isUsed) {
+        for (int i = from; i < to; i++) set(i, isUsed);
+    }
+
+    // marks [from, to) used, but keeps it free in the stored bitmap until each page is claimed
+    public void reserveRange(int from, int to) {
+        setRange(from, to, true);
+        reserved.set(from, to);
+    }
+
+    // a reserved page is now really used: it is stored as used from the next store of its group
+    public void claim(int pageIdx) {
+        if (!reserved.get(pageIdx)) return;
+        reserved.clear(pageIdx);
+        dirtyGroups.set(groupOf(pageIdx));
+    }
+
+    // forgets the groups that start at or after page `pageCount` (the file was truncated)
+    public void truncate(int pageCount) {
+        int groups = groupOf(Math.max(0, pageCount - 1)) + 1;
+        if (groups >= groupCount) return;
+        used.clear(bitmapPageOf(groups), Math.max(bitmapPageOf(groups), used.length()));
+        reserved.clear(bitmapPageOf(groups), Math.max(bitmapPageOf(groups), reserved.length()));
+        used.set(bitmapPageOf(groups));
+        fullGroups.clear(groups, groupCount);
+        dirtyGroups.clear(groups, groupCount);
+        Arrays.fill(usedInGroup, groups, groupCount, 0);
+        groupCount = groups;
+        firstFreeHint = Math.min(firstFreeHint, bitmapPageOf(groups));
+    }
+
+    private int groupOf(int pageIdx) {
+        return pageIdx / (groupBits + 1);
+    }
+
+    private boolean canAddGroup() {
+        return (long) bitmapPageOf(groupCount) + 1 < maxPages;
+    }
+
+    private void addGroup() {
+        if (usedInGroup.length <= groupCount) usedInGroup = Arrays.copyOf(usedInGroup, groupCount * 2);
+        used.set(bitmapPageOf(groupCount));
+        // the next group's bitmap page position is kept set too, so that searches
+        // in the last group stop at its boundary
+        used.set(bitmapPageOf(groupCount + 1));
+        dirtyGroups.set(groupCount);
+        groupCount++;
+    }
+}
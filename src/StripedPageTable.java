@@ -0,0 +1,55 @@
+// Table des pages d'un BufferPool (PageId -> case), découpée en STRIPES PageTable, chacune
+// protégée par son propre verrou : un accès à une page déjà chargée ne prend que le verrou
+// de sa stripe. La stripe est choisie par les bits de poids fort du hash, ceux de poids
+// faible choisissent la case dans la table de la stripe : les deux restent indépendants.
+final class StripedPageTable {
+    private static final int STRIPE_BITS = 4;
+    private static final int STRIPES = 1 << STRIPE_BITS;
+
+    private final PageTable[] tables = new PageTable[STRIPES];
+    private final Object[] locks = new Object[STRIPES];
+
+    StripedPageTable(int frames) {
+        for (int s = 0; s < STRIPES; s++) {
+            tables[s] = new PageTable(frames / STRIPES + 1);
+            locks[s] = new Object();
+        }
+    }
+
+    // verrou de la stripe de pid : get, put et remove de pid ne sont appelés que sous ce verrou
+    Object lock(PageId pid) {
+        return locks[stripe(pid)];
+    }
+
+    // case qui contient pid, ou -1
+    int get(PageId pid) {
+        return tables[stripe(pid)].get(pid);
+    }
+
+    void put(PageId pid, int frame) {
+        tables[stripe(pid)].put(pid, frame);
+    }
+
+    void remove(PageId pid) {
+        tables[stripe(pid)].remove(pid);
+    }
+
+    // get sous le verrou de la stripe
+    int find(PageId pid) {
+        synchronized (lock(pid)) {
+            return get(pid);
+        }
+    }
+
+    void clear() {
+        for (int s = 0; s < STRIPES; s++) {
+            synchronized (locks[s]) {
+                tables[s].clear();
+            }
+        }
+    }
+
+    private static int stripe(PageId pid) {
+        return PageTable.hash(pid) >>> (32 - STRIPE_BITS);
+    }
+}
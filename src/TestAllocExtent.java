@@ -0,0 +1,50 @@
+public class TestAllocExtent {
+    public static void main(String[] args) throws Exception {
+        DBConfig cfg = new DBConfig("db_extent", 4096, 3, 5, "LRU");
+        cfg.setDm_growth_pages(16);
+        try (DiskManager dm = new DiskManager(cfg)) {
+            dm.Init();
+
+            PageId single = dm.AllocPage();
+            PageId hole = dm.AllocPage();
+            PageId after = dm.AllocPage();
+            dm.DeallocPage(hole); // one-page hole: too small for the extent below
+
+            PageId first = dm.AllocExtent(4);
+            System.out.println("Extent starts at " + first);
+            System.out.println("Extent skips the hole? " + (first.getPageIdx() > after.getPageIdx()));
+
+            // the hole is still available for single pages
+            PageId reused = dm.AllocPage();
+            System.out.println("Hole reused? " + reused.equals(hole));
+
+            // the 4 pages of the extent are used: next single page comes after them
+            PageId next = dm.AllocPage();
+            System.out.println("Next page after extent? " + (next.getPageIdx() == first.getPageIdx() + 4));
+
+            for (int i = 0; i < 4; i++) dm.DeallocPage(new PageId(first.getFileIdx(), first.getPageIdx() + i));
+            dm.DeallocPage(single);
+            dm.DeallocPage(reused);
+            dm.DeallocPage(after);
+            dm.DeallocPage(next);
+        }
+
+        // reserved extent with a single claimed page: shut down (checkpoint included) without releasing the rest
+        PageId reserved;
+        try (DiskManager dm = new DiskManager(cfg)) {
+            dm.Init();
+            reserved = dm.ReserveExtent(4, null);
+            dm.ClaimPage(reserved);
+            System.out.println("Reserved extent used in memory? "
+                    + dm.IsAllocated(new PageId(reserved.getFileIdx(), reserved.getPageIdx() + 3)));
+        }
+        try (DiskManager dm = new DiskManager(cfg)) {
+            dm.Init();
+            boolean returned = true;
+            for (int k = 1; k < 4; k++) returned &= !dm.IsAllocated(new PageId(reserved.getFileIdx(), reserved.getPageIdx() + k));
+            System.out.println("Claimed page kept, rest of the reservation free after a restart? "
+                    + (dm.IsAllocated(reserved) && returned));
+            dm.DeallocPage(reserved);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+public class TestAllocHint {
+    public static void main(String[] args) throws Exception {
+        DBConfig cfg = new DBConfig("db_allochint", 4096, 3, 5, "LRU");
+        try (DiskManager dm = new DiskManager(cfg)) {
+            dm.Init();
+            System.out.println("No file chosen without dm_spread_relations? " + (dm.ChooseFileForRelation() == -1));
+        }
+        cfg.setDm_spread_relations(true);
+        try (DiskManager dm = new DiskManager(cfg)) {
+            dm.Init();
+            // two relations growing at the same time
+            PageId a = dm.AllocPage(new PageId(dm.ChooseFileForRelation(), 1));
+            PageId b = dm.AllocPage(new PageId(dm.ChooseFileForRelation(), 1));
+            System.out.println("Relations in different files? " + (a.getFileIdx() != b.getFileIdx()));
+
+            PageId lastA = a, lastB = b;
+            boolean contiguous = true;
+            for (int i = 0; i < 10; i++) {
+                PageId na = dm.AllocPage(lastA);
+                PageId nb = dm.AllocPage(lastB);
+                contiguous &= na.getFileIdx() == a.getFileIdx() && na.getPageIdx() == lastA.getPageIdx() + 1;
+                contiguous &= nb.getFileIdx() == b.getFileIdx() && nb.getPageIdx() == lastB.getPageIdx() + 1;
+                lastA = na;
+                lastB = nb;
+            }
+            System.out.println("Pages of each relation contiguous? " + contiguous);
+
+            // a hole before the hint is not used while there is room after it
+            dm.DeallocPage(new PageId(a.getFileIdx(), a.getPageIdx() + 2));
+            PageId next = dm.AllocPage(lastA);
+            System.out.println("Allocated after the hint? " + (next.getPageIdx() == lastA.getPageIdx() + 1));
+
+            PageId extent = dm.AllocExtent(4, next);
+            System.out.println("Extent after the hint? " + extent.equals(new PageId(next.getFileIdx(), next.getPageIdx() + 1)));
+
+            for (int i = 0; i < 4; i++) dm.DeallocPage(new PageId(extent.getFileIdx(), extent.getPageIdx() + i));
+            for (int p = a.getPageIdx(); p <= next.getPageIdx(); p++) {
+                if (p != a.getPageIdx() + 2) dm.DeallocPage(new PageId(a.getFileIdx(), p));
+            }
+            for (int p = b.getPageIdx(); p <= lastB.getPageIdx(); p++) dm.DeallocPage(new PageId(b.getFileIdx(), p));
+        }
+    }
+}
@@ -0,0 +1,38 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+public class TestAsyncIO {
+    public static void main(String[] args) throws Exception {
+        DBConfig cfg = new DBConfig("db_async", 4096, 2, 5, "LRU");
+        cfg.setDm_io_queue_depth(4); // more requests than slots: submitters must wait
+        try (DiskManager dm = new DiskManager(cfg)) {
+            dm.Init();
+            int n = 20;
+            PageId first = dm.AllocExtent(n);
+
+            List<CompletableFuture<Void>> writes = new ArrayList<>();
+            for (int i = 0; i < n; i++) {
+                byte[] page = new byte[cfg.getPagesize()];
+                Arrays.fill(page, (byte) i);
+                writes.add(dm.WritePageAsync(new PageId(first.getFileIdx(), first.getPageIdx() + i), page));
+            }
+            for (CompletableFuture<Void> w : writes) DiskManager.await(w);
+
+            byte[][] pages = new byte[n][cfg.getPagesize()];
+            List<CompletableFuture<Void>> reads = new ArrayList<>();
+            for (int i = 0; i < n; i++) {
+                reads.add(dm.ReadPageAsync(new PageId(first.getFileIdx(), first.getPageIdx() + i), pages[i]));
+            }
+            boolean ok = true;
+            for (int i = 0; i < n; i++) {
+                DiskManager.await(reads.get(i));
+                ok &= pages[i][0] == (byte) i && pages[i][cfg.getPagesize() - 1] == (byte) i;
+            }
+            System.out.println("Async pages read back equal? " + ok);
+
+            for (int i = 0; i < n; i++) dm.DeallocPage(new PageId(first.getFileIdx(), first.getPageIdx() + i));
+        }
+    }
+}
@@ -0,0 +1,61 @@
+import java.util.Arrays;
+
+public class TestBackgroundWriter {
+    public static void main(String[] args) throws Exception {
+        // 1) nettoyage des cases froides, tours déclenchés à la main
+        DBConfig cfg = new DBConfig("db_bgwriter", 4096, 1, 8, "LRU");
+        cfg.setBm_bgwriter_interval_ms(3_600_000); // le thread ne fait rien pendant le test
+        cfg.setBm_bgwriter_clean_frames(4);
+        cfg.setBm_readahead(0); // l'ordre LRU ne dépend que des accès du test
+        DiskManager dm = new DiskManager(cfg);
+        dm.Init();
+        BufferManager bm = new BufferManager(cfg, dm);
+        PageId[] p = new PageId[12];
+        for (int i = 0; i < p.length; i++) {
+            p[i] = dm.AllocPage();
+            dm.WritePage(p[i], new byte[cfg.getPagesize()]);
+        }
+        for (int i = 0; i < 8; i++) {
+            bm.GetPage(p[i]).put(0, (byte) (i + 1));
+            bm.FreePage(p[i], true);
+        }
+        System.out.println("Pages written by one round: " + bm.RunBackgroundWriter());
+        System.out.println("Coldest pages on disk, hot ones not? "
+                + Arrays.equals(onDisk(dm, cfg, p, 8), new byte[] { 1, 2, 3, 4, 0, 0, 0, 0 }));
+        System.out.println("Nothing left to clean? " + (bm.RunBackgroundWriter() == 0));
+        bm.Finish();
+
+        // 2) checkpoint incrémental par le thread, y compris pour une page restée épinglée
+        cfg.setBm_bgwriter_interval_ms(0);
+        cfg.setBm_checkpoint_interval_ms(20);
+        cfg.setBm_bgwriter_max_pages(2);
+        bm = new BufferManager(cfg, dm);
+        for (int i = 0; i < 8; i++) {
+            bm.GetPage(p[i]).put(0, (byte) (i + 11));
+            bm.FreePage(p[i], true);
+        }
+        bm.GetPage(p[0]); // dirty et de nouveau épinglée
+        byte[] expected = { 11, 12, 13, 14, 15, 16, 17, 18 };
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!Arrays.equals(onDisk(dm, cfg, p, 8), expected) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        System.out.println("Checkpoint wrote every dirty page? " + Arrays.equals(onDisk(dm, cfg, p, 8), expected));
+        bm.FreePage(p[0], false);
+        bm.Finish();
+
+        for (PageId pid : p) dm.DeallocPage(pid);
+        dm.Finish();
+    }
+
+    // premier octet de chacune des `count` premières pages, lu sur disque
+    static byte[] onDisk(DiskManager dm, DBConfig cfg, PageId[] p, int count) throws Exception {
+        byte[] first = new byte[count];
+        byte[] page = new byte[cfg.getPagesize()];
+        for (int i = 0; i < count; i++) {
+            dm.ReadPage(p[i], page);
+            first[i] = page[0];
+        }
+        return first;
+    }
+}
@@ -0,0 +1,132 @@
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Lock;
+
+public class TestBufferPools {
+    public static void main(String[] args) throws Exception {
+        DBConfig cfg = new DBConfig("db_pools", 4096, 1, 8, "LRU");
+        cfg.setBm_readahead(0);
+        cfg.setBm_pools("headers:4");
+        cfg.setBm_pool_assign("HEADERS=headers");
+        DiskManager dm = new DiskManager(cfg);
+        dm.Init();
+        PageId first = dm.AllocExtent(40);
+        PageId[] p = new PageId[40];
+        for (int i = 0; i < p.length; i++) {
+            p[i] = new PageId(first.getFileIdx(), first.getPageIdx() + i);
+            byte[] page = new byte[cfg.getPagesize()];
+            ByteBuffer.wrap(page).putInt(0, 1000 + i);
+            dm.WritePage(p[i], page);
+        }
+        BufferManager bm = new BufferManager(cfg, dm);
+        BufferPool headers = bm.getPool("headers");
+
+        // les pages d'en-tête restent dans leur pool pendant qu'un parcours remplit "default"
+        for (int i = 0; i < 4; i++) read(bm, p[i], true);
+        for (int i = 4; i < p.length; i++) read(bm, p[i], false);
+        long misses = headers.getStats().getMisses();
+        boolean ok = true;
+        for (int i = 0; i < 4; i++) ok &= read(bm, p[i], true) == 1000 + i;
+        System.out.println("Headers kept during the scan? " + (ok && headers.getStats().getMisses() == misses)
+                + " (default pool evictions=" + bm.getStats().getEvictions() + ")");
+
+        // une page n'est que dans un pool : lue sans être un en-tête, c'est la même case
+        bm.GetPage(p[0], null, "R", true).putInt(4, 42);
+        bm.FreePage(p[0], true);
+        int seen = bm.GetPage(p[0]).getInt(4);
+        bm.FreePage(p[0], false);
+        System.out.println("Same copy from every pool? " + (seen == 42 && bm.getResidentCount() == 8));
+
+        // affectation d'une relation à un nouveau pool : ses défauts de page n'évincent plus rien ailleurs
+        bm.CreatePool("scan", 4, "MRU");
+        bm.AssignPool("R", "scan");
+        long evictions = bm.getStats().getEvictions();
+        for (int i = 4; i < p.length; i++) read(bm, p[i], false);
+        System.out.println("Scan pool used? " + (bm.getStats().getEvictions() == evictions
+                && bm.getPool("scan").getResidentCount() == 4) + " " + bm.getAssignments());
+
+        try {
+            bm.AssignPool("R", "nope");
+            System.out.println("ERREUR: pool inconnu accepté");
+        } catch (IllegalArgumentException e) {
+            System.out.println("Refusé: " + e.getMessage());
+        }
+        try {
+            bm.CreatePool("scan", 4, "LRU");
+            System.out.println("ERREUR: pool créé deux fois");
+        } catch (IllegalArgumentException e) {
+            System.out.println("Refusé: " + e.getMessage());
+        }
+
+        // taille maximale d'un pool nommé : 4 fois sa taille par défaut, sinon celle donnée à sa création
+        BufferPool big = bm.CreatePool("big", 2, 16, "LRU");
+        big.Resize(16);
+        System.out.println("Pool capacities: headers " + headers.getCapacity() + ", big " + big.getCapacity());
+        System.out.println("Named pool grown past 4x? " + (headers.getCapacity() == 16 && big.getBufferCount() == 16));
+        try {
+            big.Resize(17);
+            System.out.println("ERREUR: taille au-delà du maximum acceptée");
+        } catch (IllegalArgumentException e) {
+            System.out.println("Refusé: " + e.getMessage());
+        }
+
+        bm.FlushBuffers();
+        byte[] page = new byte[cfg.getPagesize()];
+        dm.ReadPage(p[0], page);
+        System.out.println("Header page written? " + (ByteBuffer.wrap(page).getInt(4) == 42));
+
+        // des threads lisent les mêmes pages comme en-têtes ou non : aucune mise à jour perdue
+        // (pas plus de threads que de cases dans un pool : chacun garde une page épinglée)
+        for (int i = 0; i < p.length; i++) {
+            dm.WritePage(p[i], new byte[cfg.getPagesize()]);
+        }
+        int threads = 4, rounds = 4000;
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            long seed = t;
+            workers[t] = new Thread(() -> {
+                Random rnd = new Random(seed);
+                try {
+                    for (int r = 0; r < rounds; r++) {
+                        PageId pid = p[rnd.nextInt(12)];
+                        ByteBuffer bb = bm.GetPage(pid, null, rnd.nextBoolean() ? "R" : null, rnd.nextBoolean());
+                        Lock latch = bm.getLatch(pid).writeLock();
+                        latch.lock();
+                        try {
+                            bb.putInt(0, bb.getInt(0) + 1);
+                        } finally {
+                            latch.unlock();
+                        }
+                        bm.FreePage(pid, true);
+                    }
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                }
+            });
+            workers[t].start();
+        }
+        for (Thread th : workers) th.join();
+        if (failure.get() != null) throw new RuntimeException(failure.get());
+
+        bm.FlushBuffers();
+        long total = 0;
+        for (PageId pid : p) {
+            dm.ReadPage(pid, page);
+            total += ByteBuffer.wrap(page).getInt(0);
+        }
+        System.out.println("Concurrent pools: total=" + total + " attendu=" + (threads * rounds)
+                + (total == threads * rounds ? " OK" : " ERREUR: mises à jour perdues"));
+
+        bm.Finish();
+        for (PageId pid : p) dm.DeallocPage(pid);
+        dm.Finish();
+    }
+
+    static int read(BufferManager bm, PageId pid, boolean header) throws Exception {
+        int v = bm.GetPage(pid, null, "R", header).getInt(0);
+        bm.FreePage(pid, false);
+        return v;
+    }
+}
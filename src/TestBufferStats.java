@@ -0,0 +1,49 @@
+import java.util.List;
+
+public class TestBufferStats {
+    public static void main(String[] args) throws Exception {
+        DBConfig cfg = new DBConfig("db_stats", 4096, 1, 4, "LRU");
+        cfg.setBm_readahead(0);
+        DiskManager dm = new DiskManager(cfg);
+        dm.Init();
+        BufferManager bm = new BufferManager(cfg, dm);
+        PageId[] p = new PageId[6];
+        for (int i = 0; i < p.length; i++) {
+            p[i] = dm.AllocPage();
+            dm.WritePage(p[i], new byte[cfg.getPagesize()]);
+        }
+
+        // p0 p1 p0 : 2 misses, 1 hit ; p2 modifiée ; p3 remplit le pool
+        for (PageId pid : List.of(p[0], p[1], p[0], p[2], p[3])) {
+            bm.GetPage(pid);
+            bm.FreePage(pid, pid.equals(p[2]));
+        }
+        // p4 évince p1 (propre), p5 évince p0, puis p0 évince p2 (modifiée, écrite)
+        for (PageId pid : List.of(p[4], p[5], p[0])) {
+            bm.GetPage(pid);
+            bm.FreePage(pid, false);
+        }
+        BufferPoolStats stats = bm.getStats();
+        System.out.println("hits=" + stats.getHits() + " misses=" + stats.getMisses()
+                + " evictions=" + stats.getEvictions() + " dirtyWriteBacks=" + stats.getDirtyWriteBacks());
+        System.out.println("Counters match the trace? " + (stats.getHits() == 1 && stats.getMisses() == 7
+                && stats.getEvictions() == 3 && stats.getDirtyWriteBacks() == 1));
+        System.out.println("Hit ratio 1/8? " + (stats.getHitRatio() == 1.0 / 8));
+        System.out.println("Miss latency measured? " + (stats.getAverageMissLatencyMicros() > 0));
+
+        // occupation par relation : les pages lues par la relation lui sont attribuées
+        bm.FlushBuffers();
+        stats.resetCounters();
+        Relation r = new Relation("R", dm, bm, cfg);
+        r.addColumn("x", "int");
+        r.initializeHeaderPage();
+        for (int i = 0; i < 3; i++) r.InsertRecord(new Record(List.of(String.valueOf(i))));
+        bm.GetPage(p[0]);
+        bm.FreePage(p[0], false);
+        System.out.println("Residency: " + bm.getResidency());
+        bm.printStats();
+
+        bm.Finish();
+        dm.Finish();
+    }
+}
@@ -0,0 +1,38 @@
+public class TestClockPolicy {
+    public static void main(String[] args) throws Exception {
+        DBConfig cfg = new DBConfig("db_clock", 4096, 1, 3, "CLOCK");
+        DiskManager dm = new DiskManager(cfg);
+        dm.Init();
+        BufferManager bm = new BufferManager(cfg, dm);
+        PageId[] p = new PageId[5];
+        for (int i = 0; i < 5; i++) p[i] = dm.AllocPage();
+
+        for (int i = 0; i < 3; i++) {
+            bm.GetPage(p[i]);
+            bm.FreePage(p[i], false);
+        }
+        // the first sweep clears every reference bit and takes frame 0
+        bm.GetPage(p[3]);
+        bm.FreePage(p[3], false);
+        // p[1] is referenced again: it gets a second chance, p[2] is evicted
+        bm.GetPage(p[1]);
+        bm.FreePage(p[1], false);
+        bm.GetPage(p[4]);
+        bm.FreePage(p[4], false);
+        bm.printState();
+
+        // all frames pinned: no victim
+        for (PageId pid : new PageId[] { p[1], p[3], p[4] }) bm.GetPage(pid);
+        try {
+            bm.GetPage(p[0]);
+            System.out.println("ERREUR: page chargée alors que tout est épinglé");
+        } catch (RuntimeException e) {
+            System.out.println("All pinned: " + e.getMessage());
+        }
+        for (PageId pid : new PageId[] { p[1], p[3], p[4] }) bm.FreePage(pid, false);
+
+        bm.FlushBuffers();
+        for (PageId pid : p) dm.DeallocPage(pid);
+        dm.Finish();
+    }
+}
@@ -0,0 +1,79 @@
+import java.io.File;
+import java.util.ArrayList;
+
+public class TestCompact {
+    public static void main(String[] args) throws Exception {
+        // a single file, so that the pages of both relations are interleaved
+        DBConfig config = new DBConfig("db_compact", 256, 1, 32, "LRU");
+        DiskManager disk = new DiskManager(config);
+        disk.Init();
+        BufferManager buffer = new BufferManager(config, disk);
+        DBManager db = new DBManager(config);
+        db.setManagers(disk, buffer);
+
+        Relation a = newRelation("A", disk, buffer, config);
+        Relation b = newRelation("B", disk, buffer, config);
+        db.addTable(a);
+        db.addTable(b);
+        for (int i = 0; i < 300; i++) {
+            a.InsertRecord(new Record(new String[] { "" + i, "" + (i % 7) }));
+            b.InsertRecord(new Record(new String[] { "" + i, "" + (i % 5) }));
+        }
+
+        // DROP TABLE A
+        a.releaseExtent();
+        disk.DeallocPage(a.getHeaderPageId());
+        for (PageId pid : a.getDataPages()) disk.DeallocPage(pid);
+        db.RemoveTable("A");
+        buffer.FlushBuffers();
+
+        File data0 = new File("db_compact/BinData/Data0.bin");
+        long before = data0.length();
+        int released = db.Compact();
+        long after = data0.length();
+        System.out.println("Pages released: " + released + " (" + before + " -> " + after + " bytes)");
+        System.out.println("File shrunk? " + (after < before));
+
+        ArrayList<Record> records = b.GetAllRecords();
+        long sum = 0;
+        for (Record r : records) sum += Integer.parseInt(r.getValue(0));
+        System.out.println("B intact after compaction? " + (records.size() == 300 && sum == 299L * 300 / 2));
+        int maxPage = b.getHeaderPageId().getPageIdx();
+        for (PageId pid : b.getDataPages()) maxPage = Math.max(maxPage, pid.getPageIdx());
+        System.out.println("Pages of B at the head of the file? " + ((long) (maxPage + 1) * 256 == after));
+
+        // les pages déplacées sont sur disque avant la troncature, et le cache n'a pas été vidé
+        boolean onDisk = true;
+        ArrayList<PageId> pagesOfB = b.getDataPages();
+        pagesOfB.add(b.getHeaderPageId());
+        for (PageId pid : pagesOfB) {
+            byte[] stored = new byte[256];
+            disk.ReadPage(pid, stored);
+            try (PageHandle page = buffer.PinPage(pid)) {
+                byte[] cached = new byte[256];
+                page.getBuffer().get(0, cached);
+                onDisk &= java.util.Arrays.equals(stored, cached);
+            }
+        }
+        System.out.println("B written before truncation? " + onDisk);
+        System.out.println("State saved by COMPACT? " + new File("db_compact/database.save").exists());
+
+        b.InsertRecord(new Record(new String[] { "300", "0" }));
+        System.out.println("Insert after compaction: " + b.GetAllRecords().size() + " records");
+
+        b.releaseExtent();
+        disk.DeallocPage(b.getHeaderPageId());
+        for (PageId pid : b.getDataPages()) disk.DeallocPage(pid);
+        buffer.FlushBuffers();
+        disk.Finish();
+    }
+
+    private static Relation newRelation(String name, DiskManager disk, BufferManager buffer, DBConfig config) throws Exception {
+        Relation r = new Relation(name, disk, buffer, config);
+        r.addColumn("X", "INT");
+        r.addColumn("Y", "INT");
+        r.calculateNbSlotsPerPage();
+        r.initializeHeaderPage();
+        return r;
+    }
+}
@@ -0,0 +1,92 @@
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Lock;
+
+public class TestConcurrentBufferManager {
+    static final int THREADS = 8;
+    static final int ROUNDS = 2000;
+    static final int PAGES = 64;
+
+    public static void main(String[] args) throws Exception {
+        for (String policy : ReplacementPolicy.NAMES) run(policy);
+        accessLog();
+    }
+
+    // hits and FreePages noted by several threads at once all reach the policy
+    static void accessLog() throws Exception {
+        Object policyLock = new Object();
+        long[] replayed = new long[1];
+        AccessLog log = new AccessLog(policyLock, a -> replayed[0]++);
+        Thread[] threads = new Thread[THREADS];
+        for (int t = 0; t < THREADS; t++) {
+            int frame = t;
+            threads[t] = new Thread(() -> {
+                for (int r = 0; r < 100 * ROUNDS; r++) log.record(frame << 1 | (r & 1));
+            });
+            threads[t].start();
+        }
+        for (Thread th : threads) th.join();
+        synchronized (policyLock) {
+            log.drain();
+        }
+        long expected = (long) THREADS * 100 * ROUNDS;
+        System.out.println("AccessLog: replayed=" + replayed[0] + " attendu=" + expected
+                + (replayed[0] == expected ? " OK" : " ERREUR: accès perdus"));
+    }
+
+    static void run(String policy) throws Exception {
+        DBConfig cfg = new DBConfig("db_concurrent", 4096, 1, 16, policy);
+        DiskManager dm = new DiskManager(cfg);
+        dm.Init();
+        BufferManager bm = new BufferManager(cfg, dm);
+        PageId[] pages = new PageId[PAGES];
+        for (int i = 0; i < PAGES; i++) {
+            pages[i] = dm.AllocPage();
+            dm.WritePage(pages[i], new byte[cfg.getPagesize()]);
+        }
+
+        // every thread increments the counter of random pages: each page stays pinned
+        // while its latch is held, and is evicted and read back many times
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread[] threads = new Thread[THREADS];
+        for (int t = 0; t < THREADS; t++) {
+            long seed = t;
+            threads[t] = new Thread(() -> {
+                Random rnd = new Random(seed);
+                try {
+                    for (int r = 0; r < ROUNDS; r++) {
+                        PageId pid = pages[rnd.nextInt(PAGES)];
+                        ByteBuffer bb = bm.GetPage(pid);
+                        Lock latch = bm.getLatch(pid).writeLock();
+                        latch.lock();
+                        try {
+                            bb.putInt(0, bb.getInt(0) + 1);
+                        } finally {
+                            latch.unlock();
+                        }
+                        bm.FreePage(pid, true);
+                    }
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread th : threads) th.join();
+        if (failure.get() != null) throw new RuntimeException(failure.get());
+
+        bm.FlushBuffers();
+        long total = 0;
+        byte[] buf = new byte[cfg.getPagesize()];
+        for (PageId pid : pages) {
+            dm.ReadPage(pid, buf);
+            total += ByteBuffer.wrap(buf).getInt(0);
+        }
+        System.out.println(policy + ": total=" + total + " attendu=" + (THREADS * ROUNDS)
+                + (total == THREADS * ROUNDS ? " OK" : " ERREUR: mises à jour perdues"));
+
+        for (PageId pid : pages) dm.DeallocPage(pid);
+        dm.Finish();
+    }
+}
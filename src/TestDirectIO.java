@@ -0,0 +1,29 @@
+import java.util.Arrays;
+
+public class TestDirectIO {
+    public static void main(String[] args) throws Exception {
+        DBConfig cfg = new DBConfig("db_direct", 4096, 2, 5, "LRU");
+        cfg.setDm_direct_io(true);
+        try (DiskManager dm = new DiskManager(cfg)) {
+            dm.Init();
+            PageId pid = dm.AllocPage();
+            byte[] out = new byte[cfg.getPagesize()];
+            Arrays.fill(out, (byte) 7);
+            dm.WritePage(pid, out);
+            byte[] in = new byte[cfg.getPagesize()];
+            dm.ReadPage(pid, in);
+            System.out.println("O_DIRECT page read back equal? " + Arrays.equals(out, in));
+            dm.DeallocPage(pid);
+        }
+
+        // a pagesize that is not a multiple of the block size must be rejected
+        DBConfig bad = new DBConfig("db_direct_bad", 100, 2, 5, "LRU");
+        bad.setDm_direct_io(true);
+        try (DiskManager dm = new DiskManager(bad)) {
+            dm.Init();
+            System.out.println("Unaligned pagesize accepted (unexpected)");
+        } catch (IllegalArgumentException e) {
+            System.out.println("Rejected: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,62 @@
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+public class TestFileHandleCache {
+    public static void main(String[] args) throws Exception {
+        Path dir = Files.createDirectories(Path.of("db_handles"));
+        int[] opened = new int[1];
+        FileHandleCache cache = new FileHandleCache(2, f -> {
+            opened[0]++;
+            return FileChannel.open(dir.resolve("F" + f + ".bin"),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        });
+
+        for (int f = 0; f < 5; f++) {
+            cache.acquire(f).write(ByteBuffer.wrap(new byte[] { (byte) f }), 0);
+            cache.markWritten(f);
+            cache.release(f);
+        }
+        System.out.println("Open channels bounded? " + (cache.openCount() == 2));
+
+        // a pinned channel is never closed, even past the capacity
+        FileChannel pinned = cache.acquire(0);
+        cache.acquire(1);
+        cache.release(1);
+        cache.acquire(2);
+        cache.release(2);
+        System.out.println("Pinned channel still open? " + pinned.isOpen());
+        cache.release(0);
+
+        // evicted files written since their last force are reopened and forced
+        int before = opened[0];
+        cache.force(4);
+        cache.force(3);
+        System.out.println("Evicted file reopened to be forced? " + (opened[0] > before));
+        cache.closeAll();
+        System.out.println("All closed? " + (cache.openCount() == 0));
+
+        // DiskManager with more files than open handles
+        DBConfig cfg = new DBConfig("db_handles", 4096, 10, 5, "LRU");
+        cfg.setDm_maxopenfiles(3);
+        try (DiskManager dm = new DiskManager(cfg)) {
+            dm.Init();
+            byte[] page = new byte[4096];
+            PageId[] pids = new PageId[10];
+            for (int f = 0; f < 10; f++) {
+                pids[f] = dm.AllocPage(new PageId(f, 1));
+                page[0] = (byte) f;
+                dm.WritePage(pids[f], page);
+            }
+            boolean ok = true;
+            for (int f = 0; f < 10; f++) {
+                dm.ReadPage(pids[f], page);
+                ok &= pids[f].getFileIdx() == f && page[0] == (byte) f;
+            }
+            System.out.println("10 files through 3 handles read back? " + ok);
+            for (PageId pid : pids) dm.DeallocPage(pid);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+public class TestPageHandle {
+    public static void main(String[] args) throws Exception {
+        DBConfig cfg = new DBConfig("db_handle", 4096, 1, 4, "LRU");
+        cfg.setBm_readahead(0);
+        cfg.setBm_pools("headers:2");
+        cfg.setBm_pool_assign("HEADERS=headers");
+        DiskManager dm = new DiskManager(cfg);
+        dm.Init();
+        PageId first = dm.AllocExtent(12);
+        PageId[] p = new PageId[12];
+        for (int i = 0; i < p.length; i++) p[i] = new PageId(first.getFileIdx(), first.getPageIdx() + i);
+        BufferManager bm = new BufferManager(cfg, dm);
+        BufferPoolStats stats = bm.getStats();
+
+        // modification par un handle : écrite au FlushBuffers
+        for (int i = 0; i < 8; i++) {
+            try (PageHandle page = bm.PinPage(p[i])) {
+                page.getBuffer().putInt(0, 100 + i);
+                page.markDirty();
+            }
+        }
+        bm.FlushBuffers();
+        boolean ok = true;
+        byte[] data = new byte[cfg.getPagesize()];
+        for (int i = 0; i < 8; i++) {
+            dm.ReadPage(p[i], data);
+            ok &= ByteBuffer.wrap(data).getInt(0) == 100 + i;
+        }
+        System.out.println("Dirty pages written? " + ok);
+
+        // une exception dans le try ne laisse aucune page épinglée : les 4 cases restent utilisables
+        for (int i = 0; i < 4; i++) {
+            try (PageHandle page = bm.PinPage(p[i])) {
+                if (page.getBuffer().getInt(0) == 100 + i) throw new IllegalStateException("sortie anticipée");
+            } catch (IllegalStateException e) {
+                // attendu
+            }
+        }
+        long evictions = stats.getEvictions();
+        List<PageHandle> pinned = new ArrayList<>();
+        boolean allPinned = true;
+        try {
+            for (int i = 4; i < 8; i++) pinned.add(bm.PinPage(p[i]));
+        } catch (RuntimeException e) {
+            allPinned = false; // plus de case libre : une page est restée épinglée
+        } finally {
+            for (PageHandle page : pinned) page.close();
+        }
+        System.out.println("No pin leaked on early exit? " + (allPinned && stats.getEvictions() == evictions + 4));
+
+        // un second close() ne dépingle rien de plus : la page reste épinglée par l'autre handle
+        PageHandle kept = bm.PinPage(p[8]);
+        PageHandle twice = bm.PinPage(p[8]);
+        twice.close();
+        twice.close();
+        for (int i = 0; i < 4; i++) read(bm, p[i]);
+        long misses = stats.getMisses();
+        read(bm, p[8]);
+        kept.close();
+        System.out.println("Page still pinned after two close()? " + (stats.getMisses() == misses));
+
+        // la vue n'est plus utilisable après close()
+        PageHandle closed = bm.PinPage(p[0]);
+        closed.close();
+        try {
+            closed.getBuffer();
+            System.out.println("ERREUR: vue utilisable après close()");
+        } catch (IllegalStateException e) {
+            System.out.println("Refusé: " + e.getMessage());
+        }
+
+        // un handle dépingle la page dans le pool où elle se trouve, sans la rechercher
+        try (PageHandle header = bm.PinPage(p[10], null, "R", true)) {
+            header.getBuffer().putInt(0, 77);
+            header.markDirty();
+        }
+        int seen;
+        try (PageHandle page = bm.PinPage(p[10])) {
+            seen = page.getBuffer().getInt(0);
+        }
+        System.out.println("Header pool handle? " + (seen == 77
+                && bm.getPool("headers").getResidentCount() == 1 && bm.getPool("headers").getDirtyCount() == 1));
+
+        // GetPage rend la vue de la case, comme PinPage, sans la recopier
+        ByteBuffer view = bm.GetPage(p[11]);
+        boolean shared;
+        try (PageHandle page = bm.PinPage(p[11])) {
+            shared = page.getBuffer() == view && bm.GetPage(p[11]) == view;
+        }
+        bm.FreePage(p[11], false);
+        bm.FreePage(p[11], false);
+        System.out.println("GetPage returns the frame's view? " + shared);
+
+        bm.Finish();
+        for (PageId pid : p) dm.DeallocPage(pid);
+        dm.Finish();
+    }
+
+    static int read(BufferManager bm, PageId pid) throws Exception {
+        int v = bm.GetPage(pid).getInt(0);
+        bm.FreePage(pid, false);
+        return v;
+    }
+}
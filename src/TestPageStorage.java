@@ -0,0 +1,59 @@
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+public class TestPageStorage {
+    public static void main(String[] args) throws Exception {
+        for (String backend : new String[] { "channel", "mmap" }) {
+            DBConfig cfg = new DBConfig("db_storage_" + backend, 4096, 2, 5, "LRU");
+            cfg.setDm_storage(backend);
+            cfg.setDm_mmap_chunk_pages(4); // force several mappings
+
+            try (DiskManager dm = new DiskManager(cfg)) {
+                dm.Init();
+                boolean ok = true;
+                for (int i = 0; i < 10; i++) {
+                    PageId pid = dm.AllocPage();
+                    byte[] out = new byte[cfg.getPagesize()];
+                    Arrays.fill(out, (byte) (i + 1));
+                    dm.WritePage(pid, out);
+
+                    byte[] in = new byte[cfg.getPagesize()];
+                    dm.ReadPage(pid, in);
+                    ok &= Arrays.equals(out, in);
+                }
+                System.out.println(backend + ": pages read back equal? " + ok);
+            }
+        }
+
+        // mmap : le fichier garde sa longueur logique pendant l'utilisation, et un truncate le coupe aussitôt
+        DBConfig cfg = new DBConfig("db_storage_mmap", 4096, 2, 5, "LRU");
+        cfg.setDm_mmap_chunk_pages(4);
+        Path file = Paths.get("db_storage_mmap", "mapped.bin");
+        Files.deleteIfExists(file);
+        MappedFileStorage storage = new MappedFileStorage(cfg, f -> file);
+        for (int i = 0; i < 10; i++) storage.writePage(0, i, ByteBuffer.wrap(page(cfg, i + 1)));
+        long grown = Files.size(file);
+        storage.truncate(0, 3);
+        long cut = Files.size(file);
+        byte[] in = new byte[cfg.getPagesize()];
+        storage.readPage(0, 2, ByteBuffer.wrap(in));
+        boolean kept = Arrays.equals(page(cfg, 3), in);
+        storage.writePage(0, 5, ByteBuffer.wrap(page(cfg, 6)));
+        storage.readPage(0, 5, ByteBuffer.wrap(in));
+        kept &= Arrays.equals(page(cfg, 6), in) && Files.size(file) == 6L * cfg.getPagesize();
+        storage.close();
+        System.out.println("mmap: file sizes " + grown + ", " + cut + " after truncate");
+        System.out.println("mmap: file never longer than its pages, cut at once? "
+                + (grown == 10L * cfg.getPagesize() && cut == 3L * cfg.getPagesize() && kept));
+        Files.delete(file);
+    }
+
+    static byte[] page(DBConfig cfg, int value) {
+        byte[] page = new byte[cfg.getPagesize()];
+        Arrays.fill(page, (byte) value);
+        return page;
+    }
+}
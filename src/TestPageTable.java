@@ -0,0 +1,27 @@
+import java.util.HashMap;
+import java.util.Random;
+
+public class TestPageTable {
+    public static void main(String[] args) {
+        // random puts/removes checked against a HashMap
+        PageTable table = new PageTable(16); // grows up to 1000 entries
+        HashMap<PageId, Integer> expected = new HashMap<>();
+        Random rnd = new Random(42);
+        boolean ok = true;
+        for (int i = 0; i < 200000; i++) {
+            PageId pid = new PageId(rnd.nextInt(4), rnd.nextInt(3000));
+            if (expected.size() < 1000 && rnd.nextBoolean()) {
+                table.put(pid, i);
+                expected.put(pid, i);
+            } else {
+                table.remove(pid);
+                expected.remove(pid);
+            }
+            PageId probe = new PageId(rnd.nextInt(4), rnd.nextInt(3000));
+            ok &= table.get(probe) == expected.getOrDefault(probe, -1);
+        }
+        for (PageId pid : expected.keySet()) ok &= table.get(pid) == expected.get(pid);
+        System.out.println("Page table matches HashMap? " + (ok && table.size() == expected.size()));
+        System.out.println("Unknown page not found? " + (table.get(new PageId(7, 7)) == -1));
+    }
+}
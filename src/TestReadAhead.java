@@ -0,0 +1,67 @@
+import java.nio.ByteBuffer;
+
+public class TestReadAhead {
+    public static void main(String[] args) throws Exception {
+        DBConfig cfg = new DBConfig("db_readahead", 4096, 1, 16, "LRU");
+        cfg.setBm_readahead(4);
+        DiskManager dm = new DiskManager(cfg);
+        dm.Init();
+        PageId first = dm.AllocExtent(40);
+        PageId[] p = new PageId[40];
+        for (int i = 0; i < p.length; i++) {
+            p[i] = new PageId(first.getFileIdx(), first.getPageIdx() + i);
+            byte[] page = new byte[cfg.getPagesize()];
+            ByteBuffer.wrap(page).putInt(0, 1000 + i);
+            dm.WritePage(p[i], page);
+        }
+        BufferManager bm = new BufferManager(cfg, dm);
+        System.out.println("Read-ahead window: " + bm.getReadAhead());
+
+        // parcours croissant puis décroissant : passé les trois premiers défauts de page,
+        // chaque page est déjà lue (ou en lecture) quand elle est demandée, avec le bon contenu
+        boolean ok = true;
+        BufferPoolStats stats = bm.getStats();
+        for (int i = 0; i < p.length; i++) ok &= read(bm, p[i]) == 1000 + i;
+        System.out.println("Ascending scan: " + stats.getMisses() + " misses, "
+                + stats.getPrefetchReads() + " pages read ahead");
+        System.out.println("Ascending scan read ahead? " + (stats.getPrefetchReads() > 0 && stats.getMisses() == 3));
+        bm.FlushBuffers();
+        stats.resetCounters();
+        for (int i = p.length - 1; i >= 0; i--) ok &= read(bm, p[i]) == 1000 + i;
+        System.out.println("Descending scan read ahead? " + (stats.getPrefetchReads() > 0 && stats.getMisses() == 3));
+        System.out.println("Sequential scans read the right pages? " + ok);
+
+        // indication explicite, y compris des pages non allouées (ignorées)
+        bm.FlushBuffers();
+        bm.Prefetch(p[7], p[3], p[21], new PageId(first.getFileIdx(), first.getPageIdx() + 500));
+        System.out.println("Prefetched pages read back? "
+                + (read(bm, p[21]) == 1021 && read(bm, p[3]) == 1003 && read(bm, p[7]) == 1007));
+
+        // une page modifiée n'est jamais évincée par la lecture anticipée sans être écrite
+        bm.FlushBuffers();
+        for (int i = 0; i < 16; i++) {
+            bm.GetPage(p[i]).putInt(4, 7);
+            bm.FreePage(p[i], true);
+        }
+        bm.Prefetch(p[30], p[31], p[32]);
+        for (int i = 16; i < 24; i++) read(bm, p[i]);
+        bm.FlushBuffers();
+        boolean kept = true;
+        byte[] page = new byte[cfg.getPagesize()];
+        for (int i = 0; i < 16; i++) {
+            dm.ReadPage(p[i], page);
+            kept &= ByteBuffer.wrap(page).getInt(4) == 7;
+        }
+        System.out.println("Dirty pages kept? " + kept);
+
+        bm.Finish();
+        for (PageId pid : p) dm.DeallocPage(pid);
+        dm.Finish();
+    }
+
+    static int read(BufferManager bm, PageId pid) throws Exception {
+        int v = bm.GetPage(pid).getInt(0);
+        bm.FreePage(pid, false);
+        return v;
+    }
+}
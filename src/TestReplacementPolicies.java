@@ -0,0 +1,64 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+public class TestReplacementPolicies {
+    public static void main(String[] args) {
+        // 3 hot pages, read twice between short scans of pages never seen again
+        List<PageId> trace = new ArrayList<>();
+        int next = 100;
+        for (int round = 0; round < 50; round++) {
+            for (int h = 1; h <= 6; h++) trace.add(new PageId(0, 1 + h % 3));
+            for (int s = 0; s < 6; s++) trace.add(new PageId(0, next++));
+        }
+
+        int lruHits = hotHits("LRU", trace);
+        System.out.println("LRU: " + lruHits + " hot hits");
+        for (String name : new String[] { "CLOCK", "2Q", "LRU2", "ARC" }) {
+            int hits = hotHits(name, trace);
+            System.out.println(name + ": " + hits + " hot hits");
+        }
+        for (String name : new String[] { "2Q", "LRU2", "ARC" }) {
+            System.out.println(name + " scan resistant? " + (hotHits(name, trace) > lruHits));
+        }
+
+        try {
+            ReplacementPolicy.create("FIFO", 8);
+            System.out.println("ERREUR: politique inconnue acceptée");
+        } catch (IllegalArgumentException e) {
+            System.out.println("Rejected: " + e.getMessage());
+        }
+    }
+
+    // replays the trace on a pool of 8 frames, returns the hits on pages 1..3
+    private static int hotHits(String name, List<PageId> trace) {
+        int frames = 8;
+        ReplacementPolicy policy = ReplacementPolicy.create(name, frames);
+        HashMap<PageId, Integer> resident = new HashMap<>();
+        PageId[] content = new PageId[frames];
+        int used = 0;
+        int hits = 0;
+        for (PageId pid : trace) {
+            Integer frame = resident.get(pid);
+            if (frame != null) {
+                policy.onHit(frame);
+                if (pid.getPageIdx() <= 3) hits++;
+            } else {
+                int f;
+                if (used < frames) {
+                    f = used++;
+                } else {
+                    f = policy.selectVictim(pid, i -> true);
+                    policy.onEvict(f, content[f]);
+                    resident.remove(content[f]);
+                }
+                content[f] = pid;
+                resident.put(pid, f);
+                policy.onLoad(f, pid);
+                frame = f;
+            }
+            policy.onUnpin(frame);
+        }
+        return hits;
+    }
+}
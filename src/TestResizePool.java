@@ -0,0 +1,133 @@
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Lock;
+
+public class TestResizePool {
+    public static void main(String[] args) throws Exception {
+        DBConfig cfg = new DBConfig("db_resize", 4096, 1, 16, "LRU");
+        cfg.setBm_readahead(0);
+        DiskManager dm = new DiskManager(cfg);
+        dm.Init();
+        PageId first = dm.AllocExtent(40);
+        PageId[] p = new PageId[40];
+        for (int i = 0; i < p.length; i++) {
+            p[i] = new PageId(first.getFileIdx(), first.getPageIdx() + i);
+            byte[] page = new byte[cfg.getPagesize()];
+            ByteBuffer.wrap(page).putInt(0, 1000 + i);
+            dm.WritePage(p[i], page);
+        }
+        BufferManager bm = new BufferManager(cfg, dm);
+        BufferPoolStats stats = bm.getStats();
+
+        for (int i = 0; i < 16; i++) {
+            bm.GetPage(p[i]).putInt(4, 7);
+            bm.FreePage(p[i], true);
+        }
+
+        // agrandissement : les pages présentes restent, les nouvelles pages n'évincent rien
+        bm.Resize(32);
+        long misses = stats.getMisses();
+        boolean ok = true;
+        for (int i = 0; i < 16; i++) ok &= read(bm, p[i]) == 1000 + i;
+        System.out.println("Pages kept after growing? " + (ok && stats.getMisses() == misses));
+        for (int i = 16; i < 32; i++) read(bm, p[i]);
+        System.out.println("Grown pool: " + bm.getBufferCount() + " frames, "
+                + bm.getResidentCount() + " resident, evictions=" + stats.getEvictions());
+
+        // réduction : la case épinglée n'est retirée qu'à son FreePage
+        bm.GetPage(p[31]).putInt(4, 9);
+        int remaining = bm.Resize(8);
+        System.out.println("Shrunk pool: " + bm.getBufferCount() + " frames, "
+                + bm.getResidentCount() + " resident, still pinned=" + remaining);
+        misses = stats.getMisses();
+        ok = true;
+        for (int i = 0; i < 8; i++) ok &= read(bm, p[i]) == 1000 + i;
+        System.out.println("First pages kept after shrinking? " + (ok && stats.getMisses() == misses));
+        bm.FreePage(p[31], true);
+        System.out.println("Pinned frame retired on FreePage? " + (bm.getResidentCount() == 8));
+
+        try {
+            bm.Resize(0);
+            System.out.println("ERREUR: taille 0 acceptée");
+        } catch (IllegalArgumentException e) {
+            System.out.println("Refusé: " + e.getMessage());
+        }
+
+        // les pages modifiées des cases retirées ont été écrites
+        bm.FlushBuffers();
+        boolean kept = true;
+        byte[] page = new byte[cfg.getPagesize()];
+        for (int i = 0; i < 16; i++) {
+            dm.ReadPage(p[i], page);
+            kept &= ByteBuffer.wrap(page).getInt(4) == 7;
+        }
+        dm.ReadPage(p[31], page);
+        kept &= ByteBuffer.wrap(page).getInt(4) == 9;
+        System.out.println("Dirty pages written? " + kept);
+
+        // des threads modifient des pages pendant que le pool change sans cesse de taille
+        for (int i = 0; i < p.length; i++) {
+            dm.WritePage(p[i], new byte[cfg.getPagesize()]);
+        }
+        int threads = 6, rounds = 3000;
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            long seed = t;
+            workers[t] = new Thread(() -> {
+                Random rnd = new Random(seed);
+                try {
+                    for (int r = 0; r < rounds; r++) {
+                        PageId pid = p[rnd.nextInt(p.length)];
+                        ByteBuffer bb = bm.GetPage(pid);
+                        Lock latch = bm.getLatch(pid).writeLock();
+                        latch.lock();
+                        try {
+                            bb.putInt(0, bb.getInt(0) + 1);
+                        } finally {
+                            latch.unlock();
+                        }
+                        bm.FreePage(pid, true);
+                    }
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                }
+            });
+            workers[t].start();
+        }
+        Thread resizer = new Thread(() -> {
+            int[] sizes = {12, 48, 8, 30, 64, 10};
+            for (int k = 0; !done.get(); k++) {
+                bm.Resize(sizes[k % sizes.length]);
+                Thread.yield();
+            }
+        });
+        resizer.start();
+        for (Thread th : workers) th.join();
+        done.set(true);
+        resizer.join();
+        if (failure.get() != null) throw new RuntimeException(failure.get());
+
+        bm.FlushBuffers();
+        long total = 0;
+        for (PageId pid : p) {
+            dm.ReadPage(pid, page);
+            total += ByteBuffer.wrap(page).getInt(0);
+        }
+        System.out.println("Concurrent resizing: total=" + total + " attendu=" + (threads * rounds)
+                + (total == threads * rounds ? " OK" : " ERREUR: mises à jour perdues"));
+
+        bm.Finish();
+        for (PageId pid : p) dm.DeallocPage(pid);
+        dm.Finish();
+    }
+
+    static int read(BufferManager bm, PageId pid) throws Exception {
+        int v = bm.GetPage(pid).getInt(0);
+        bm.FreePage(pid, false);
+        return v;
+    }
+}
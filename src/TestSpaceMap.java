@@ -0,0 +1,26 @@
+public class TestSpaceMap {
+    public static void main(String[] args) throws Exception {
+        DBConfig cfg = new DBConfig("db_spacemap", 4096, 3, 5, "LRU");
+        PageId p1, p2;
+        try (DiskManager dm = new DiskManager(cfg)) {
+            dm.Init();
+            p1 = dm.AllocPage();
+            p2 = dm.AllocPage();
+            dm.DeallocPage(p1);
+            System.out.println("Allocated " + p1 + " and " + p2 + ", freed " + p1);
+        } // Finish() writes the bitmap back to page 0
+
+        // a fresh DiskManager must see p2 as used and p1 as free
+        try (DiskManager dm = new DiskManager(cfg)) {
+            dm.Init();
+            PageId p3 = dm.AllocPage();
+            PageId p4 = dm.AllocPage();
+            System.out.println("After restart: " + p3 + ", " + p4);
+            System.out.println("Freed page reused? " + p3.equals(p1));
+            System.out.println("Used page kept? " + !p4.equals(p2));
+            dm.DeallocPage(p3);
+            dm.DeallocPage(p4);
+            dm.DeallocPage(p2);
+        }
+    }
+}
@@ -0,0 +1,35 @@
+import java.util.HashSet;
+import java.util.Set;
+
+public class TestSpaceMapGroups {
+    public static void main(String[] args) throws Exception {
+        // pagesize 64: one bitmap page tracks 512 pages, so 600 pages need a second group
+        DBConfig cfg = new DBConfig("db_spacemap_groups", 64, 1, 5, "LRU");
+        int bitmapPage1 = 64 * 8 + 1;
+        Set<Integer> allocated = new HashSet<>();
+        try (DiskManager dm = new DiskManager(cfg)) {
+            dm.Init();
+            for (int i = 0; i < 600; i++) allocated.add(dm.AllocPage().getPageIdx());
+            System.out.println("600 pages in a single file? " + (allocated.size() == 600));
+            System.out.println("Bitmap page of group 1 skipped? " + !allocated.contains(bitmapPage1));
+            try {
+                dm.DeallocPage(new PageId(0, bitmapPage1));
+                System.out.println("ERREUR: bitmap page deallocated");
+            } catch (IllegalArgumentException e) {
+                System.out.println("Bitmap page protected: " + e.getMessage());
+            }
+            dm.DeallocPage(new PageId(0, 550));
+        } // Finish() writes both bitmap pages
+
+        try (DiskManager dm = new DiskManager(cfg)) {
+            dm.Init();
+            PageId reused = dm.AllocPage();
+            PageId fresh = dm.AllocPage();
+            System.out.println("After restart: " + reused + ", " + fresh);
+            System.out.println("Freed page of group 1 reused? " + (reused.getPageIdx() == 550));
+            System.out.println("Next page is new? " + !allocated.contains(fresh.getPageIdx()));
+            for (int p : allocated) dm.DeallocPage(new PageId(0, p));
+            dm.DeallocPage(fresh);
+        }
+    }
+}
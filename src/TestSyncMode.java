@@ -0,0 +1,74 @@
+public class TestSyncMode {
+    public static void main(String[] args) throws Exception {
+        // always : un force par écriture
+        DiskManager dm = open("always", 200, 4L << 20);
+        PageId[] p = pages(dm, 4);
+        long before = dm.getForceCount();
+        for (int i = 0; i < 3; i++) dm.WritePage(p[i], new byte[4096]);
+        System.out.println("always: one force per write? " + (dm.getForceCount() == before + 3));
+        free(dm, p);
+        dm.Finish();
+
+        // group, seuil de 3 pages (minuterie trop lente pour intervenir) : rien avant le seuil,
+        // un seul force pour les trois pages
+        dm = open("group", 60_000, 3 * 4096);
+        p = pages(dm, 4);
+        dm.Sync();
+        before = dm.getForceCount();
+        dm.WritePage(p[0], new byte[4096]);
+        dm.WritePage(p[1], new byte[4096]);
+        boolean waiting = dm.getForceCount() == before;
+        dm.WritePage(p[2], new byte[4096]);
+        System.out.println("group: forced at the byte threshold? " + (waiting && dm.getForceCount() == before + 1));
+        free(dm, p);
+        dm.Finish();
+
+        // group, minuterie de 50 ms (seuil hors d'atteinte) : la page est forcée sans Sync explicite
+        dm = open("group", 50, 1L << 30);
+        p = pages(dm, 1);
+        before = dm.getForceCount();
+        dm.WritePage(p[0], new byte[4096]);
+        long deadline = System.currentTimeMillis() + 5000;
+        while (dm.getForceCount() == before && System.currentTimeMillis() < deadline) Thread.sleep(10);
+        System.out.println("group: forced by the timer? " + (dm.getForceCount() > before));
+        free(dm, p);
+        dm.Finish();
+
+        // none : aucun force avant Checkpoint() ou Finish()
+        dm = open("none", 50, 4096);
+        p = pages(dm, 4);
+        before = dm.getForceCount();
+        for (int i = 0; i < 4; i++) dm.WritePage(p[i], new byte[4096]);
+        Thread.sleep(100);
+        System.out.println("none: nothing forced after the writes? " + (dm.getForceCount() == before));
+        dm.Checkpoint();
+        long atCheckpoint = dm.getForceCount();
+        System.out.println("none: forced at Checkpoint? " + (atCheckpoint > before));
+        dm.WritePage(p[0], new byte[4096]);
+        System.out.println("none: nothing forced after the Checkpoint? " + (dm.getForceCount() == atCheckpoint));
+        free(dm, p);
+        dm.Finish();
+        System.out.println("none: forced at Finish? " + (dm.getForceCount() > atCheckpoint));
+    }
+
+    static DiskManager open(String mode, int intervalMs, long bytes) throws Exception {
+        DBConfig cfg = new DBConfig("db_sync", 4096, 1, 4, "LRU");
+        cfg.setDm_sync_mode(mode);
+        cfg.setDm_sync_interval_ms(intervalMs);
+        cfg.setDm_sync_bytes(bytes);
+        DiskManager dm = new DiskManager(cfg);
+        dm.Init();
+        return dm;
+    }
+
+    static PageId[] pages(DiskManager dm, int n) throws Exception {
+        PageId first = dm.AllocExtent(n);
+        PageId[] p = new PageId[n];
+        for (int i = 0; i < n; i++) p[i] = new PageId(first.getFileIdx(), first.getPageIdx() + i);
+        return p;
+    }
+
+    static void free(DiskManager dm, PageId[] p) throws Exception {
+        for (PageId pid : p) dm.DeallocPage(pid);
+    }
+}
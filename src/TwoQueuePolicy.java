@@ -0,0 +1,95 @@
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.function.IntPredicate;
+
+// 2Q (Johnson & Shasha): a page read for the first time goes to the FIFO A1in;
+// hits there do not promote it, so a scan only ever recycles A1in. Pages evicted
+// from A1in are remembered in the ghost queue A1out; a page loaded again while
+// remembered goes to Am, the LRU queue of the hot pages.
+public class TwoQueuePolicy implements ReplacementPolicy {
+    private final FrameList a1in;
+    private final FrameList am;
+    private final LinkedHashSet<Long> a1out = new LinkedHashSet<>();
+    private int kin;   // target size of A1in (1/4 of the frames)
+    private int kout;  // pages remembered in A1out (1/2 of the frames)
+
+    public TwoQueuePolicy(int frames) {
+        a1in = new FrameList(frames);
+        am = new FrameList(frames);
+        onResize(frames);
+    }
+
+    @Override
+    public void onLoad(int frame, PageId pid) {
+        if (a1out.remove(PageTable.key(pid))) {
+            am.addLast(frame);
+        } else {
+            a1in.addLast(frame);
+        }
+    }
+
+    @Override
+    public void onHit(int frame) {
+        if (am.contains(frame)) am.moveToLast(frame);
+    }
+
+    @Override
+    public void onUnpin(int frame) {
+    }
+
+    @Override
+    public void onEvict(int frame, PageId pid) {
+        if (a1in.contains(frame)) {
+            a1in.remove(frame);
+            a1out.add(PageTable.key(pid));
+            trimGhosts();
+        } else {
+            am.remove(frame);
+        }
+    }
+
+    @Override
+    public int selectVictim(PageId incoming, IntPredicate evictable) {
+        // A1in above its share (or Am empty): take from A1in first
+        boolean fromIn = a1in.size() > kin || am.size() == 0;
+        int victim = oldestEvictable(fromIn ? a1in : am, evictable);
+        if (victim < 0) victim = oldestEvictable(fromIn ? am : a1in, evictable);
+        return victim;
+    }
+
+    @Override
+    public int coldFrames(int[] out, IntPredicate candidate) {
+        boolean fromIn = a1in.size() > kin || am.size() == 0;
+        int n = (fromIn ? a1in : am).collect(out, 0, candidate);
+        return (fromIn ? am : a1in).collect(out, n, candidate);
+    }
+
+    @Override
+    public void reset() {
+        a1in.clear();
+        am.clear();
+        a1out.clear();
+    }
+
+    @Override
+    public void onResize(int frames) {
+        kin = Math.max(1, frames / 4);
+        kout = Math.max(1, frames / 2);
+        trimGhosts();
+    }
+
+    private void trimGhosts() {
+        while (a1out.size() > kout) {
+            Iterator<Long> oldest = a1out.iterator();
+            oldest.next();
+            oldest.remove();
+        }
+    }
+
+    private static int oldestEvictable(FrameList list, IntPredicate evictable) {
+        for (int f = list.first(); f >= 0; f = list.next(f)) {
+            if (evictable.test(f)) return f;
+        }
+        return -1;
+    }
+}
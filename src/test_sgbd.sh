@@ -14,7 +14,9 @@ INSERT INTO users VALUES (1, Alice, 25)
 INSERT INTO users VALUES (2, Bob, 30)
 SELECT * FROM users
 BMSTATE
+BMSTATS
 BMSETTINGS MRU
+BMSETTINGS SIZE 8
 BMSTATE
 DESCRIBE *
 EXIT